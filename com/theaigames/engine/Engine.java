@@ -19,8 +19,10 @@ package com.theaigames.engine;
 
 import com.theaigames.engine.io.BotCommunication;
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.BotThreads;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,10 +45,20 @@ public class Engine implements BotCommunication {
     // ArrayList containing player handlers
     private ArrayList<IOPlayer> players;
     
+    // Factory for the threads that read the output of the bots and write their input
+    private ThreadFactory botThreads;
+    
     // Engine constructor 
     public Engine() {
         this.isRunning = false;
         this.players = new ArrayList<IOPlayer>();
+        this.botThreads = BotThreads.platform();
+    }
+    
+    // Sets the factory for the threads that read the output and write the input of the bots added after this,
+    // see BotThreads
+    public void setBotThreads(ThreadFactory botThreads) {
+        this.botThreads = botThreads;
     }
     
     // Sets game logic
@@ -67,7 +79,7 @@ public class Engine implements BotCommunication {
         Process process = Runtime.getRuntime().exec(command);
 
         // Attach IO to process
-        IOPlayer player = new IOPlayer(process);
+        IOPlayer player = new IOPlayer(process, this.botThreads);
         
         // Add player
         this.players.add(player);
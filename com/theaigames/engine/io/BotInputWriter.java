@@ -0,0 +1,183 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * BotInputWriter class
+ * 
+ * Writes the input of a bot to its standard input from a separate thread, so that the engine never blocks when a bot
+ * stops reading and the pipe to it is full. The engine collects bytes and hands them off as one batch per flush. At
+ * most a fixed number of batches waits for the writer thread: when the queue is full the batch is refused, so the
+ * engine can give up on the bot instead of waiting for it. The buffers of written batches are reused for the next
+ * ones, so flushing does not allocate once the buffers are large enough.
+ */
+public class BotInputWriter {
+    
+    private static final Batch END_OF_INPUT = new Batch();    // closes the input of the bot
+    
+    private OutputStream stream;
+    private Batch pending;
+    private BlockingQueue<Batch> batches;
+    private BlockingQueue<Batch> freeBatches;    // written batches, returned by the writer thread
+    private volatile long writeStartedAt;    // odd nanoTime at the start of the write in progress, 0 when idle
+    private volatile IOException failure;
+    private boolean closed;
+    
+    /**
+     * @param stream : the standard input of the bot
+     * @param capacity : the maximum number of batches that wait to be written
+     */
+    public BotInputWriter(OutputStream stream, int capacity) {
+        this.stream = stream;
+        this.pending = new Batch();
+        this.batches = new ArrayBlockingQueue<Batch>(capacity);
+        
+        // besides the waiting batches, one is being filled and one is being written
+        this.freeBatches = new ArrayBlockingQueue<Batch>(capacity + 2);
+    }
+    
+    /**
+     * Starts the writer thread
+     * @param threads : the factory that makes the thread
+     */
+    public void start(ThreadFactory threads) {
+        threads.newThread(new Runnable() {
+            public void run() {
+                writeBatches();
+            }
+        }).start();
+    }
+    
+    /**
+     * Collects bytes for the bot, they are handed to the writer thread on the next flush
+     */
+    public void write(byte[] bytes, int offset, int length) {
+        this.pending.append(bytes, offset, length);
+    }
+    
+    /**
+     * Hands the collected bytes to the writer thread without waiting for them to be written
+     * @return : false if too many batches are still waiting to be written, the bytes are then dropped
+     */
+    public boolean flush() {
+        if (this.pending.size == 0 || this.closed)
+            return true;
+        if (!this.batches.offer(this.pending)) {
+            this.pending.size = 0;
+            return false;
+        }
+        Batch free = this.freeBatches.poll();
+        this.pending = free != null ? free : new Batch();
+        return true;
+    }
+    
+    /**
+     * @param timeOutNanos : the time a write may take
+     * @return : whether the write in progress has taken longer than the given time, because the bot does not read
+     */
+    public boolean isStuck(long timeOutNanos) {
+        return timeUntilStuck(timeOutNanos) == 0;
+    }
+    
+    /**
+     * @param timeOutNanos : the time a write may take
+     * @return : the nanoseconds until the write in progress takes longer than the given time, 0 if it already has,
+     *           or the given time when nothing is being written
+     */
+    public long timeUntilStuck(long timeOutNanos) {
+        long startedAt = this.writeStartedAt;
+        if (startedAt == 0)
+            return timeOutNanos;
+        return Math.max(0, timeOutNanos - (System.nanoTime() - startedAt));
+    }
+    
+    /**
+     * @return : the number of batches waiting to be written
+     */
+    public int depth() {
+        return this.batches.size();
+    }
+    
+    /**
+     * @return : the exception that stopped the writer thread, or null
+     */
+    public IOException getFailure() {
+        return this.failure;
+    }
+    
+    /**
+     * Closes the input of the bot after the waiting batches, without waiting for them. When the queue is full, the
+     * caller should stop the bot process so that the writer thread is not blocked forever.
+     */
+    public void close() {
+        if (this.closed)
+            return;
+        this.closed = true;
+        this.pending.size = 0;
+        this.batches.offer(END_OF_INPUT);
+    }
+    
+    // runs on the writer thread, which stops at the first failure, after which the queue fills up
+    private void writeBatches() {
+        try {
+            while (true) {
+                Batch batch = this.batches.take();
+                if (batch == END_OF_INPUT)
+                    break;
+                this.writeStartedAt = System.nanoTime() | 1;
+                try {
+                    this.stream.write(batch.bytes, 0, batch.size);
+                    this.stream.flush();
+                } finally {
+                    this.writeStartedAt = 0;
+                }
+                batch.size = 0;
+                this.freeBatches.offer(batch);
+            }
+        } catch (IOException e) {
+            this.failure = e;
+        } catch (InterruptedException e) {
+            this.failure = new IOException("Writing to the bot was interrupted");
+        } finally {
+            try {
+                this.stream.close();
+            } catch (IOException e) {}
+        }
+    }
+    
+    // the bytes of one flush, the buffer only grows
+    private static class Batch {
+        
+        private byte[] bytes = new byte[1 << 10];
+        private int size;
+        
+        private void append(byte[] source, int offset, int length) {
+            if (this.size + length > this.bytes.length)
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.size + length, this.bytes.length * 2));
+            System.arraycopy(source, offset, this.bytes, this.size, length);
+            this.size += length;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BotThreads class
+ * 
+ * Thread factories for the threads of the bots: two InputStreamGobbler threads that read the output of a bot and one
+ * BotInputWriter thread that writes its input. These threads block until the bot prints or reads something, so with
+ * many tables in one JVM most threads of the engine are bot threads. Virtual threads (Java 21 and newer) take far less
+ * memory than platform threads. They are looked up by reflection, so the engine still compiles and runs on older
+ * versions of Java, where platform threads are used instead.
+ * <p>
+ * While a virtual thread reads from a pipe of the bot process, the JDK lends it an extra carrier thread, so the number
+ * of OS threads still grows with the number of reads that block at the same time, up to the limit that is set with
+ * the system property jdk.virtualThreadScheduler.maxPoolSize.
+ */
+public final class BotThreads {
+    
+    private static final AtomicLong threadNumber = new AtomicLong();
+    
+    private BotThreads() {}
+    
+    /**
+     * @return : a factory that starts a platform thread for every reader and writer
+     */
+    public static ThreadFactory platform() {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                return new Thread(task, "bot io " + threadNumber.incrementAndGet());
+            }
+        };
+    }
+    
+    /**
+     * @return : a factory that starts a virtual thread for every reader and writer, or null without virtual threads
+     */
+    public static ThreadFactory virtual() {
+        try {
+            // Thread.ofVirtual().name("bot io ", 1).factory(), which only compiles on Java 21 and newer
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "bot io ", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // no virtual threads, or only as a preview feature that is not enabled
+            return null;
+        }
+    }
+    
+    /**
+     * @return : a factory for virtual threads when this Java version has them, and for platform threads otherwise
+     */
+    public static ThreadFactory virtualIfAvailable() {
+        ThreadFactory factory = virtual();
+        return factory != null ? factory : platform();
+    }
+}
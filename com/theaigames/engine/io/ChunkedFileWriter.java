@@ -0,0 +1,171 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * ChunkedFileWriter class
+ * 
+ * Writer that collects text in chunks of a fixed size and writes full chunks to a file from a background thread, so
+ * that recording a match does not wait for the disk. At most a fixed number of characters is kept in memory: when the
+ * disk cannot keep up, writing blocks until a chunk has been written. The writer must be closed to write the last
+ * chunk and to close the file.
+ */
+public class ChunkedFileWriter extends Writer {
+    
+    private Writer file;
+    private int chunkSize;
+    private StringBuilder chunk;
+    private BlockingQueue<String> fullChunks;
+    private Thread writerThread;
+    private volatile IOException failure;
+    private volatile boolean endOfFile;     // set by close once the last chunk is queued
+    private boolean closed;
+    
+    /**
+     * @param file : the file to write to, its content is replaced
+     * @param chunkSize : the number of characters that are collected before they are written
+     * @param maxBufferedChars : the maximum number of characters kept in memory, at least two chunks
+     */
+    public ChunkedFileWriter(File file, int chunkSize, int maxBufferedChars) throws IOException {
+        this.file = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        this.chunkSize = chunkSize;
+        this.chunk = new StringBuilder(chunkSize);
+        
+        // one chunk is being filled and one is being written, the rest can wait in the queue
+        this.fullChunks = new ArrayBlockingQueue<String>(Math.max(1, maxBufferedChars / chunkSize - 2));
+        this.writerThread = new Thread("recorder " + file.getName()) {
+            public void run() {
+                writeChunks();
+            }
+        };
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    
+    @Override
+    public void write(char[] characters, int offset, int length) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            this.chunk.append(characters, offset, length);
+            if (this.chunk.length() >= this.chunkSize)
+                handOffChunk();
+        }
+    }
+    
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            this.chunk.append(string, offset, offset + length);
+            if (this.chunk.length() >= this.chunkSize)
+                handOffChunk();
+        }
+    }
+    
+    // hands the chunk that is being filled to the writer thread, without waiting for it to be written
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            if (this.chunk.length() > 0)
+                handOffChunk();
+        }
+    }
+    
+    // writes the last chunk and waits until everything is on disk
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (this.closed)
+                return;
+            if (this.chunk.length() > 0)
+                handOffChunk();
+            this.endOfFile = true;
+            putChunk("");   // wakes up the writer thread when the queue is empty
+            this.closed = true;
+            try {
+                this.writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while closing " + this.writerThread.getName());
+            }
+            if (this.failure != null)
+                throw this.failure;
+        }
+    }
+    
+    private void handOffChunk() throws IOException {
+        putChunk(this.chunk.toString());
+        this.chunk.setLength(0);
+    }
+    
+    // blocks while the maximum number of chunks is waiting to be written
+    private void putChunk(String fullChunk) throws IOException {
+        try {
+            this.fullChunks.put(fullChunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + this.writerThread.getName());
+        }
+    }
+    
+    private void ensureOpen() throws IOException {
+        if (this.closed)
+            throw new IOException("Writer is closed");
+        if (this.failure != null)
+            throw this.failure;
+    }
+    
+    // runs on the writer thread, after a failure the remaining chunks are dropped so that writing never blocks
+    private void writeChunks() {
+        try {
+            while (true) {
+                String fullChunk = this.fullChunks.take();
+                if (this.failure == null && !fullChunk.isEmpty()) {
+                    try {
+                        this.file.write(fullChunk);
+                        this.file.flush();
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+                if (this.endOfFile && this.fullChunks.isEmpty())
+                    break;
+            }
+        } catch (InterruptedException e) {
+            this.failure = new InterruptedIOException("Recording was interrupted");
+        } finally {
+            try {
+                this.file.close();
+            } catch (IOException e) {
+                if (this.failure == null)
+                    this.failure = e;
+            }
+        }
+    }
+}
@@ -18,7 +18,10 @@
 package com.theaigames.engine.io;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,38 +35,61 @@ import java.util.logging.Logger;
 public class IOPlayer implements Runnable {
     
     private Process process;
-    private OutputStreamWriter inputStream;
+    private BotInputWriter input;
     private InputStreamGobbler outputGobbler;
     private InputStreamGobbler errorGobbler;
+    private OutputCapture stdout;
+    private OutputCapture stderr;
+    private ThreadFactory threads;
     private StringBuilder dump;
+    private Writer dumpWriter;
+    private boolean dumpFailed;
     private int errorCounter;
     private boolean finished;
+    private boolean unresponsive;
+    private boolean inputFailed;
     private final int maxErrors = 2;
+    private ResponseQueue responses;
+    private long skippedLines;
     
-    public String response;
+    public static final int RESPONSE_QUEUE_CAPACITY = 64;    // lines of bot output kept until the engine asks for them
+    public static final int INPUT_QUEUE_CAPACITY = 64;       // flushed batches of bot input waiting to be written
+    public static final long INPUT_WRITE_TIMEOUT = 5000;     // milliseconds a write to the bot may block
+    public static final int CAPTURE_HEAD_SIZE = 1 << 14;     // characters kept from the start of stdout and stderr
+    public static final int CAPTURE_TAIL_SIZE = 1 << 14;     // characters kept from the end of stdout and stderr
+    
+    private static final ResponseFilter ANY_LINE = new ResponseFilter() {
+        public boolean accepts(String line) {
+            return true;
+        }
+    };
     
     public IOPlayer(Process process) {
-        this.inputStream = new OutputStreamWriter(process.getOutputStream());
-    	this.outputGobbler = new InputStreamGobbler(process.getInputStream(), this, "output");
-    	this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), this, "error");
+        this(process, BotThreads.platform());
+    }
+    
+    // reads the output of the bot and writes its input on threads from the given factory, see BotThreads
+    public IOPlayer(Process process, ThreadFactory threads) {
+        this.input = new BotInputWriter(process.getOutputStream(), INPUT_QUEUE_CAPACITY);
+        this.stdout = new OutputCapture(CAPTURE_HEAD_SIZE, CAPTURE_TAIL_SIZE);
+        this.stderr = new OutputCapture(CAPTURE_HEAD_SIZE, CAPTURE_TAIL_SIZE);
+    	this.outputGobbler = new InputStreamGobbler(process.getInputStream(), this, "output", this.stdout);
+    	this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), this, "error", this.stderr);
         this.process = process;
+        this.threads = threads;
+        this.responses = new ResponseQueue(RESPONSE_QUEUE_CAPACITY);
         this.dump = new StringBuilder();
         this.errorCounter = 0;
         this.finished = false;
     }
     
-    // processes a line by reading it or writing it
+    // processes a line by reading it or writing it, lines for the bot go to its writer thread on the next flush
     public void process(String line, String type) throws IOException {
         if (!this.finished) {
         	switch (type) {
         	case "input":
-                try {
-            		this.inputStream.write(line + "\n");
-            		this.inputStream.flush();
-                } catch(IOException e) {
-                    System.err.println("Writing to bot failed");
-                }
-                addToDump(line + "\n");
+        		byte[] encoded = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        		writeInput(line + "\n", encoded, encoded.length);
         		break;
         	case "output":
     //    		System.out.println("out: " + line);
@@ -75,54 +101,123 @@ public class IOPlayer implements Runnable {
         }
     }
     
-    // waits for a response from the bot
+    // writes lines that were already encoded, such as a message that is sent to all bots
+    public void processEncoded(LineEncoder lines) {
+        if (!this.finished)
+            writeInput(lines, lines.bytes(), lines.size());
+    }
+    
+    private void writeInput(CharSequence text, byte[] encoded, int length) {
+        this.input.write(encoded, 0, length);
+        addToDump(text);
+    }
+    
+    // queues a line of the bot's output for the engine, waking it if it waits for a response
+    void addResponse(String line) {
+        this.responses.put(line);
+    }
+    
+    // hands the lines that were collected to the writer thread, and gives up on the bot if it does not read them
+    public void flush() {
+        if (this.finished)
+            return;
+        if (!this.input.flush())
+            markUnresponsive("Your bot does not read its input, " + INPUT_QUEUE_CAPACITY + " messages are waiting");
+        else if (this.input.isStuck(TimeUnit.MILLISECONDS.toNanos(INPUT_WRITE_TIMEOUT)))
+            markWriteTimedOut();
+        else if (this.input.getFailure() != null && !this.inputFailed) {
+            this.inputFailed = true;
+            System.err.println("Writing to bot failed");
+        }
+    }
+    
+    // stops a bot that does not read its input, so that it cannot stall the match
+    private void markUnresponsive(String reason) {
+        addToDump(reason + ": skipping all moves.\n");
+        this.unresponsive = true;
+        finish();
+    }
+    
+    private void markWriteTimedOut() {
+        markUnresponsive("Writing to your bot took more than " + INPUT_WRITE_TIMEOUT + "ms");
+    }
+    
+    // sends the collected lines to the bot and waits for a response from it
     public String getResponse(long timeOut) {
-    	long timeStart = System.currentTimeMillis();
+        return getResponse(timeOut, ANY_LINE);
+    }
+    
+    // sends the collected lines to the bot and waits for a line the filter accepts, other lines are skipped
+    public String getResponse(long timeOut, ResponseFilter filter) {
     	String response;
+    	
+    	// the bot only answers after it has been sent the request, so anything it printed before is stale
+    	this.responses.skipPending();
+    	flush();
+    	if (this.unresponsive)
+    		return "";
 		
     	if (this.errorCounter > this.maxErrors) {
     		addToDump("Maximum number (" + this.maxErrors + ") of time-outs reached: skipping all moves.\n");
     		return "";
     	}
     	
-    	while(this.response == null) {
-    		long timeNow = System.currentTimeMillis();
-			long timeElapsed = timeNow - timeStart;
-			
-			if(timeElapsed >= timeOut) {
-				addToDump("Response timed out (" + timeOut + "ms), let your bot return 'No moves' instead of nothing or make it faster.\n");
-				this.errorCounter++;
-                if (this.errorCounter > this.maxErrors) {
-                    finish();
-                }
-                addToDump("Output from your bot: null");
-				return "";
-			}
-			
-			try { Thread.sleep(2); } catch (InterruptedException e) {}
+    	try {
+    		response = takeResponse(timeOut, filter);
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		response = null;
     	}
-		if(this.response.equalsIgnoreCase("No moves")) {
-			this.response = null;
+    	if (this.unresponsive)
+    		return "";
+		
+		if(response == null) {
+			addToDump("Response timed out (" + timeOut + "ms), let your bot return 'No moves' instead of nothing or make it faster.\n");
+			this.errorCounter++;
+            if (this.errorCounter > this.maxErrors) {
+                finish();
+            }
+            addToDump("Output from your bot: null");
+			return "";
+		}
+		if(response.equalsIgnoreCase("No moves")) {
             addToDump("Output from your bot: \"No moves\"\n");
 			return "";
 		}
-		
-		response = this.response;
-		this.response = null;
 
 		addToDump("Output from your bot: \"" + response + "\"\n");
 		return response;
     }
     
+    // takes lines until the filter accepts one or the time-out has passed, "No moves" is always a response. A bot that
+    // does not read the request within the write time-out is marked unresponsive while waiting, null is returned then
+    private String takeResponse(long timeOut, ResponseFilter filter) throws InterruptedException {
+        long writeTimeOut = TimeUnit.MILLISECONDS.toNanos(INPUT_WRITE_TIMEOUT);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeOut);
+        while (true) {
+            long timeLeft = deadline - System.nanoTime();
+            long writeTimeLeft = this.input.timeUntilStuck(writeTimeOut);
+            if (writeTimeLeft == 0) {
+                markWriteTimedOut();
+                return null;
+            }
+            String line = this.responses.take(Math.min(timeLeft, writeTimeLeft), TimeUnit.NANOSECONDS);
+            if (line == null && writeTimeLeft < timeLeft)
+                continue;    // check the write in progress again
+            if (line == null || line.equalsIgnoreCase("No moves") || filter.accepts(line))
+                return line;
+            this.skippedLines++;
+            addToDump("Skipped output from your bot that is not a response: \"" + line + "\"\n");
+        }
+    }
+    
     // ends the bot process and it's communication
     public void finish() {
 
         if(this.finished)
             return;
 
-    	try {
-            this.inputStream.close();
-        } catch (IOException e) {}
+    	this.input.close();
 
     	this.process.destroy();
     	try {
@@ -138,10 +233,66 @@ public class IOPlayer implements Runnable {
         return this.process;
     }
     
-    public void addToDump(String dumpy){
-		dump.append(dumpy);
+    // streams the dump to the given writer from now on, instead of keeping it in memory
+    public void recordDump(Writer writer) {
+        this.dumpWriter = writer;
+    }
+    
+    public void addToDump(CharSequence dumpy){
+        if (this.dumpWriter != null) {
+            try {
+                this.dumpWriter.append(dumpy);
+            } catch (IOException e) {
+                if (!this.dumpFailed)
+                    System.err.println("Writing the dump failed");
+                this.dumpFailed = true;
+            }
+        }
+        else
+            dump.append(dumpy);
 	}
     
+    // records all output of the bot to the given writers from now on, in addition to keeping its head and tail
+    public void recordOutput(Writer stdout, Writer stderr) {
+        this.stdout.record(stdout);
+        this.stderr.record(stderr);
+    }
+    
+    // closes the writers the dump and the output are recorded to, if any
+    public void closeDump() {
+        this.stdout.close();
+        this.stderr.close();
+        if (this.dumpWriter == null)
+            return;
+        try {
+            this.dumpWriter.close();
+        } catch (IOException e) {
+            if (!this.dumpFailed)
+                System.err.println("Writing the dump failed");
+        }
+    }
+    
+    // number of flushed batches of input waiting to be written to the bot
+    public int getInputQueueDepth() {
+        return this.input.depth();
+    }
+    
+    // number of output lines waiting to be taken as a response
+    public int getResponseQueueDepth() {
+        return this.responses.depth();
+    }
+    
+    // number of output lines that were never used as a response, because they were stale, were not accepted as a
+    // response or the queue was full
+    public long getDiscardedLines() {
+        return this.responses.getDiscarded() + this.skippedLines;
+    }
+    
+    // number of characters of stdout and stderr that were left out between the head and the tail
+    public long getDroppedOutput() {
+        return this.stdout.getDropped() + this.stderr.getDropped();
+    }
+    
     public String getStdout() {
     	return this.outputGobbler.getData();
     }
@@ -150,6 +301,7 @@ public class IOPlayer implements Runnable {
     	return this.errorGobbler.getData();
     }
     
+    // returns the dump that is kept in memory, which is empty when the dump is recorded to a writer
     public String getDump() {
     	return dump.toString();
     }
@@ -157,7 +309,8 @@ public class IOPlayer implements Runnable {
     @Override
     // start communication with the bot
     public void run() {
-        this.outputGobbler.start();
-        this.errorGobbler.start();
+        this.threads.newThread(this.outputGobbler).start();
+        this.threads.newThread(this.errorGobbler).start();
+        this.input.start(this.threads);
     }
 }
@@ -25,20 +25,22 @@ import java.io.InputStreamReader;
 /**
  * InputStreamGobbler class
  * 
+ * Reads the output of a bot, on a thread that is made by the bot thread factory of its IOPlayer
+ * 
  * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
  */
-public class InputStreamGobbler extends Thread {
+public class InputStreamGobbler implements Runnable {
 	
 	private InputStream inputStream;
 	private IOPlayer player;
 	private String type;
-	private StringBuffer buffer;
+	private OutputCapture capture;
 
-	InputStreamGobbler(InputStream inputStream, IOPlayer player, String type) {
+	InputStreamGobbler(InputStream inputStream, IOPlayer player, String type, OutputCapture capture) {
         this.inputStream = inputStream;
         this.player = player;
         this.type = type;
-        this.buffer = new StringBuffer();
+        this.capture = capture;
     }
 
     public void run() {
@@ -49,10 +51,10 @@ public class InputStreamGobbler extends Thread {
             BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
 
             while ((lastLine = bufferedReader.readLine()) != null) {
-                if (!lastLine.contains("VM warning") && buffer.length() < 1000000) { //catches bots that return way too much (infinite loop)
+                if (!lastLine.contains("VM warning")) {
                     if (this.type.equals("output"))
-                	   this.player.response = lastLine;
-                    buffer.append(lastLine + "\n");
+                	   this.player.addResponse(lastLine);
+                    this.capture.appendLine(lastLine);    // bots that print way too much only keep a head and a tail
                 }
             }
             try {
@@ -65,6 +67,6 @@ public class InputStreamGobbler extends Thread {
     }
     
     public String getData() {
-		return buffer.toString();
+		return this.capture.getData();
 	}
 }
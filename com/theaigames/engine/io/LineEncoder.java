@@ -0,0 +1,144 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * LineEncoder class
+ * 
+ * Reusable buffer in which lines of text for a bot are built directly as bytes, without formatting or encoding them
+ * first. The bot protocol is plain ASCII, so every character takes one byte and the buffer can also be read as the
+ * text it holds, for instance to add it to a dump. Characters outside ASCII are written as '?'.
+ */
+public class LineEncoder implements CharSequence {
+    
+    private static final int MIN_DIGITS_CAPACITY = 20;    // digits and sign of the smallest long
+    
+    private byte[] bytes;
+    private int size;
+    
+    public LineEncoder() {
+        this(256);
+    }
+    
+    /**
+     * @param capacity : the number of bytes the buffer can hold before it has to grow
+     */
+    public LineEncoder(int capacity) {
+        this.bytes = new byte[Math.max(capacity, MIN_DIGITS_CAPACITY)];
+    }
+    
+    /**
+     * Empties the buffer, keeping its capacity
+     * @return : this encoder
+     */
+    public LineEncoder clear() {
+        this.size = 0;
+        return this;
+    }
+    
+    public LineEncoder append(char c) {
+        ensureCapacity(1);
+        this.bytes[this.size++] = c < 0x80 ? (byte) c : (byte) '?';
+        return this;
+    }
+    
+    public LineEncoder append(CharSequence text) {
+        int length = text.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            this.bytes[this.size++] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        return this;
+    }
+    
+    public LineEncoder append(long value) {
+        ensureCapacity(MIN_DIGITS_CAPACITY);
+        if (value == Long.MIN_VALUE)
+            return append("-9223372036854775808");
+        if (value < 0) {
+            this.bytes[this.size++] = '-';
+            value = -value;
+        }
+        
+        // write the digits backwards behind the end of the buffer and move them in place
+        int end = this.bytes.length;
+        int start = end;
+        do {
+            this.bytes[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        System.arraycopy(this.bytes, start, this.bytes, this.size, end - start);
+        this.size += end - start;
+        return this;
+    }
+    
+    /**
+     * Ends the current line
+     * @return : this encoder
+     */
+    public LineEncoder newLine() {
+        return append('\n');
+    }
+    
+    /**
+     * @return : the array that holds the encoded text, of which the first size() bytes are used
+     */
+    public byte[] bytes() {
+        return this.bytes;
+    }
+    
+    /**
+     * @return : the number of bytes in the buffer
+     */
+    public int size() {
+        return this.size;
+    }
+    
+    @Override
+    public int length() {
+        return this.size;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + this.size);
+        return (char) this.bytes[index];
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(this.bytes, 0, this.size, StandardCharsets.US_ASCII);
+    }
+    
+    // makes room for the given number of bytes, and for a number that is written backwards behind them
+    private void ensureCapacity(int extra) {
+        int needed = this.size + extra + MIN_DIGITS_CAPACITY;
+        if (needed > this.bytes.length)
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(needed, this.bytes.length * 2));
+    }
+}
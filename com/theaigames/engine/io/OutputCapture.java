@@ -0,0 +1,126 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * OutputCapture class
+ * 
+ * Keeps what a bot printed on one of its output streams in a fixed amount of memory. The first characters are kept
+ * in a head and the last characters in a ring buffer, so both how the bot started and what it printed last are
+ * available for debugging. Whatever falls in between is left out and counted. Everything can also be recorded to a
+ * writer, for instance a file per bot, as it comes in.
+ */
+public class OutputCapture {
+    
+    private char[] head;
+    private int headLength;
+    private char[] tail;
+    private int tailStart;
+    private int tailLength;
+    private long dropped;
+    private Writer recording;
+    
+    /**
+     * @param headSize : the number of characters kept from the start of the output
+     * @param tailSize : the number of characters kept from the end of the output
+     */
+    public OutputCapture(int headSize, int tailSize) {
+        this.head = new char[headSize];
+        this.tail = new char[tailSize];
+    }
+    
+    /**
+     * Records all output from now on to the given writer, in addition to keeping its head and tail
+     */
+    public synchronized void record(Writer writer) {
+        this.recording = writer;
+    }
+    
+    /**
+     * Adds a line of output
+     * @param line : the line, without line end
+     */
+    public synchronized void appendLine(String line) {
+        for (int i = 0; i < line.length(); i++)
+            append(line.charAt(i));
+        append('\n');
+        
+        if (this.recording != null) {
+            try {
+                this.recording.write(line);
+                this.recording.write('\n');
+            } catch (IOException e) {
+                System.err.println("Recording the output of a bot failed");
+                this.recording = null;
+            }
+        }
+    }
+    
+    private void append(char c) {
+        if (this.headLength < this.head.length) {
+            this.head[this.headLength++] = c;
+        } else if (this.tail.length == 0) {
+            this.dropped++;
+        } else if (this.tailLength < this.tail.length) {
+            this.tail[(this.tailStart + this.tailLength++) % this.tail.length] = c;
+        } else {
+            // the tail is full, the oldest character in it is overwritten
+            this.tail[this.tailStart] = c;
+            this.tailStart = (this.tailStart + 1) % this.tail.length;
+            this.dropped++;
+        }
+    }
+    
+    /**
+     * @return : the number of characters that are neither in the head nor in the tail
+     */
+    public synchronized long getDropped() {
+        return this.dropped;
+    }
+    
+    /**
+     * @return : the head and the tail of the output, with a note of how much was left out between them
+     */
+    public synchronized String getData() {
+        StringBuilder data = new StringBuilder(this.headLength + this.tailLength + 64);
+        data.append(this.head, 0, this.headLength);
+        if (this.dropped > 0)
+            data.append("\n[... ").append(this.dropped).append(" characters left out ...]\n");
+        int firstPart = Math.min(this.tailLength, this.tail.length - this.tailStart);
+        data.append(this.tail, this.tailStart, firstPart);
+        data.append(this.tail, 0, this.tailLength - firstPart);
+        return data.toString();
+    }
+    
+    /**
+     * Closes the writer the output is recorded to, if any
+     */
+    public synchronized void close() {
+        if (this.recording == null)
+            return;
+        try {
+            this.recording.close();
+        } catch (IOException e) {
+            System.err.println("Recording the output of a bot failed");
+        }
+        this.recording = null;
+    }
+}
@@ -0,0 +1,33 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+/**
+ * ResponseFilter interface
+ * 
+ * Decides which lines of a bot's output can be the response to a request. Lines that are not accepted, such as debug
+ * output the bot prints before its answer, are skipped while the engine waits for the response.
+ */
+public interface ResponseFilter {
+    
+    /**
+     * @param line : a line the bot printed after the request
+     * @return : whether the line is a response to the request
+     */
+    public boolean accepts(String line);
+}
@@ -0,0 +1,98 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResponseQueue class
+ * 
+ * Bounded queue of the lines a bot printed on its standard output. The reader thread adds every line in the order the
+ * bot printed it and the engine takes them one at a time, so a burst of lines is never overwritten. When the queue is
+ * full the oldest line is dropped. Dropped lines and lines skipped because nobody asked for them are counted.
+ */
+public class ResponseQueue {
+    
+    private final ArrayDeque<String> lines;
+    private final int capacity;
+    private long discarded;
+    
+    /**
+     * @param capacity : the maximum number of lines that are kept
+     */
+    public ResponseQueue(int capacity) {
+        this.lines = new ArrayDeque<String>(capacity);
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Adds a line and wakes the engine if it is waiting for one
+     * @param line : the line the bot printed
+     */
+    public synchronized void put(String line) {
+        if (this.lines.size() == this.capacity) {
+            this.lines.pollFirst();
+            this.discarded++;
+        }
+        this.lines.addLast(line);
+        notifyAll();
+    }
+    
+    /**
+     * Takes the oldest line, waiting until one arrives or the time-out has passed
+     * @param timeOut : the maximum time to wait
+     * @param unit : the unit of the time-out
+     * @return : the oldest line, or null if no line arrived in time
+     */
+    public synchronized String take(long timeOut, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeOut);
+        while (this.lines.isEmpty()) {
+            long timeLeft = deadline - System.nanoTime();
+            if (timeLeft <= 0)
+                return null;
+            TimeUnit.NANOSECONDS.timedWait(this, timeLeft);
+        }
+        return this.lines.pollFirst();
+    }
+    
+    /**
+     * Skips all lines that are waiting, such as an answer that came after its time-out
+     * @return : the number of lines skipped
+     */
+    public synchronized int skipPending() {
+        int skipped = this.lines.size();
+        this.lines.clear();
+        this.discarded += skipped;
+        return skipped;
+    }
+    
+    /**
+     * @return : the number of lines waiting to be taken
+     */
+    public synchronized int depth() {
+        return this.lines.size();
+    }
+    
+    /**
+     * @return : the number of lines that were dropped or skipped so far
+     */
+    public synchronized long getDiscarded() {
+        return this.discarded;
+    }
+}
@@ -19,18 +19,37 @@ package com.theaigames.game.texasHoldem;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Vector;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.stevebrecher.HandEval;
+import com.theaigames.game.texasHoldem.eval.DefaultHandEvaluator;
+import com.theaigames.game.texasHoldem.eval.HandEvaluator;
+import com.theaigames.game.texasHoldem.eval.PreparedBoard;
+import com.theaigames.game.texasHoldem.history.HandHistorySink;
+import com.theaigames.game.texasHoldem.history.StringHandHistorySink;
 import com.theaigames.game.texasHoldem.match.MatchInfo;
 import com.theaigames.game.texasHoldem.match.MatchInfoType;
 import com.theaigames.game.texasHoldem.move.PokerMove;
 import com.theaigames.game.texasHoldem.move.PreMoveInfo;
+import com.theaigames.game.texasHoldem.odds.EquityCalculator;
+import com.theaigames.game.texasHoldem.odds.EquityResult;
+import com.theaigames.game.texasHoldem.odds.OddsMode;
+import com.theaigames.game.texasHoldem.odds.PreflopEquityTable;
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
 import com.theaigames.game.texasHoldem.table.BetRound;
 import com.theaigames.game.texasHoldem.table.Pot;
 import com.theaigames.game.texasHoldem.table.cards.Card;
@@ -67,10 +86,24 @@ public class MatchPlayer
 	private int numberOfBots;						// length of the list 'bots', stored separaty because of high usage
 	private Deck deck;								// card deck that is played with
 	private Pot pot;								// object that keeps track of the pot sizes and involvement of bots
+	private int[] potSizes;							// sizes of the main pot and the side pots, filled by the pot
+	private Pot.Payout payout;						// pots and winnings per bot at the end of the hand, filled by the pot
+	private int[] handStrengths;					// hand strength per bot at the end of the hand, -1 if not involved
 	private BetRound round;							// bet round within the hand: preflop, flop, turn or river
 	private Vector<Card> tableCards;				// cards that are on the table
 	private Hand[] botHands;						// hand cards of all the bots
-	private String handHistory;						// used to store the match progress
+	private HandEvaluator handEvaluator;			// computes the strength of hold'em hands at the showdown
+	private PreparedBoard preparedBoard;			// omaha table cards at the showdown, prepared once for all bots
+	private EquityCalculator equityCalculator;		// computes the winning chances of the bots for the hand history
+	private OddsMode oddsMode;						// whether the odds are left out, computed on demand or in the background
+	private Pacing pacing;							// whether and how long to pause after each hand
+	private ExecutorService oddsExecutor;			// computes the winning chances in the background, one at a time
+	private ArrayList<PendingOdds> pendingOdds;		// odds of this hand that are not yet written, with the text before
+	private LinkedHashMap<Integer, List<PendingOdds>> lazyOdds;	// cards of the odds updates per recent hand, in LAZY mode
+	private EquityResult lastEquity;				// last computed winning chances, with their samples and error
+	private StringBuilder handHistory;				// used to store the progress of the current hand
+	private HandHistorySink historySink;			// receives the history of every finished hand
+	private ProtocolWriter message;					// reused to build the messages to the bots, once for all of them
 	private int[] botStacksAtHandStart;				// amount of chips each bot had at the start of the current hand
 	private int[] botStacks;						// amount of chips each bot has currently
 	private int[] botBetsThisRound;					// amount of chips each bot has put in in the current bet round
@@ -102,7 +135,9 @@ public class MatchPlayer
     // some match constants
 	private final int SIZE_STARTSTACK;				// stack size that each bot starts the match with
 	private final int HANDS_PER_BLINDLEVEL = 10;	// hands played before increasing the blinds, for tournament mode
-	private final int ODDS_RUNS = 1000;				// number of simulations to determine the win chances of each bot	
+	private final int ODDS_MAX_RUNS = 5000;			// maximum number of preflop simulations to determine the win chances
+	private final int LAZY_ODDS_HANDS = 1000;		// last hands of which the cards are kept for getHandOdds in LAZY mode
+	private final double ODDS_TARGET_ERROR = 0.015;	// simulations stop at this standard error, the worst case of 1000 runs
 	private final int[] BLINDLEVELHEIGHTS = {		// the size of the big blind in the consecutive blind levels
 							20, 30, 40, 50, 60, 80,
 							100, 120, 160, 200, 240, 300, 400, 500, 600, 800,
@@ -120,7 +155,6 @@ public class MatchPlayer
 	private final int POT_LIMIT = 1;
 	
 	private Player winner;
-	private String allHistory = "";
 	
 	
 	/**
@@ -178,15 +212,37 @@ public class MatchPlayer
 		numberOfPlayersInTournament = 0;
 		numberOfPlayersAtStartHand = numberOfBots;
 		deck = new Deck();
-		pot = new Pot(players);
+		pot = new Pot(numberOfBots);
+		potSizes = new int[numberOfBots];
+		payout = new Pot.Payout(numberOfBots);
+		handStrengths = new int[numberOfBots];
 		round = BetRound.PREFLOP;
 		tableCards = new Vector<Card>();
 		if(gameType == HOLDEM)
 			botHands = new HandHoldem[numberOfBots];
 		else
 			botHands = new HandOmaha[numberOfBots];
+		handEvaluator = new DefaultHandEvaluator();
+		preparedBoard = new PreparedBoard();
+		equityCalculator = new EquityCalculator(ODDS_MAX_RUNS, gameType == OMAHA);
+		equityCalculator.setSampling(ODDS_TARGET_ERROR, ODDS_MAX_RUNS);
+		if(gameType == HOLDEM)
+			equityCalculator.setPreflopTable(PreflopEquityTable.getDefault());
+		oddsMode = OddsMode.EAGER;
+		pacing = Pacing.none();
+		oddsExecutor = createOddsExecutor();
+		pendingOdds = new ArrayList<PendingOdds>();
+		lazyOdds = new LinkedHashMap<Integer, List<PendingOdds>>()
+		{
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<PendingOdds>> eldest)
+			{
+				return size() > LAZY_ODDS_HANDS;
+			}
+		};
 		
-		handHistory = "";
+		handHistory = new StringBuilder();
+		message = new ProtocolWriter();
+		historySink = new StringHandHistorySink();
 		SIZE_STARTSTACK = startingStack;
 		botStacks = new int[numberOfBots];
 		botBetsThisRound = new int[numberOfBots];
@@ -328,6 +384,69 @@ public class MatchPlayer
 	}
 	
 	
+	/**
+	 * Sets the evaluator that computes the strength of hold'em hands, both at the showdown and for the winning chances
+	 * in the hand history. All evaluators give the same results, so the fastest one on the used hardware can be chosen.
+	 * Without a call to this method a DefaultHandEvaluator is used. Omaha hands are always computed with a
+	 * PreparedBoard.
+	 * @param evaluator : the hand evaluator to use.
+	 */
+	public void setHandEvaluator(HandEvaluator evaluator)
+	{
+		handEvaluator = evaluator;
+		equityCalculator.setHandEvaluator(evaluator);
+	}
+	
+	
+	/**
+	 * Sets the accuracy of the simulated winning chances in the hand history. Simulations stop as soon as the standard
+	 * error of every bot's chance is at most the target error, or when the maximum number of runs is reached. Without
+	 * a call to this method a target error of 1.5 percentage points and at most 5000 runs are used.
+	 * @param targetError : the target standard error as a fraction, or 0 to always do the maximum number of runs.
+	 * @param maxRuns : the maximum number of simulations per odds update.
+	 */
+	public void setOddsSampling(double targetError, int maxRuns)
+	{
+		equityCalculator.setSampling(targetError, maxRuns);
+	}
+	
+	
+	/**
+	 * Sets when the winning chances of the bots in the hand history are computed. With OFF no odds lines are written
+	 * and no time is spent on them, with LAZY no odds lines are written either but the cards of the recent hands are
+	 * kept, so that getHandOdds can compute the odds of a single hand, and with EAGER they are computed in the
+	 * background during each hand. Without a call to this method EAGER is used.
+	 * @param mode : the odds mode to use.
+	 */
+	public void setOddsMode(OddsMode mode)
+	{
+		oddsMode = mode;
+	}
+	
+	
+	/**
+	 * Sets the pacing policy that decides whether to pause after every hand. Without a call to this method no pause is
+	 * taken and hands are played at full speed.
+	 * @param pacing : the pacing policy to use.
+	 */
+	public void setPacing(Pacing pacing)
+	{
+		this.pacing = pacing;
+	}
+	
+	
+	/**
+	 * Sets the sink that receives the history of every finished hand. Without a call to this method the history is
+	 * kept in memory in a StringHandHistorySink. For long matches a StreamHandHistorySink can be used, which writes the
+	 * history to a file. Should be called before the first hand is played.
+	 * @param sink : the sink to write the hand history to.
+	 */
+	public void setHistorySink(HandHistorySink sink)
+	{
+		historySink = sink;
+	}
+	
+	
 	/**
 	 * Set the hand number with which the match will start (where the first hand would be 1, not 0). Setting the hand
 	 * number determines the blind level that is used in this match. Without a call to this method it will start at the
@@ -385,12 +504,16 @@ public class MatchPlayer
 		
 		// invoke the whole procedure for playing one hand
 		playHand();
-		handHistory += "\nMatch end hand";
+		
+		// the bots are only sent their input when they are asked for an action, send the rest of this hand now
+		for(Player player : players)
+			player.getBot().flush();
+		
+		handHistory.append("\nMatch end hand");
 		writeHistory();
 		
-		// a tiny sleep in a while loop seems to improve performance regarding the cpu
-		try {Thread.sleep(5);}
-		catch (InterruptedException e) {e.printStackTrace();}
+		// a tiny sleep in a while loop can improve performance regarding the cpu, depending on the pacing policy
+		pacing.pause();
 	}
 	
 	
@@ -577,7 +700,7 @@ public class MatchPlayer
 		handNumber++;
 		tableCards = new Vector<Card>();
 		deck.resetDeck();
-		pot = new Pot(players);
+		pot = new Pot(numberOfBots);
 		round = BetRound.PREFLOP;
 		
 		// record the number of bots at the start of this hand
@@ -589,11 +712,11 @@ public class MatchPlayer
 		
 		// send information about the new hand to the bots and write information to the history
 		sendHandInfo(HandInfoType.HAND_START);
-		handHistory += String.format("\nMatch hand %d", handNumber);
-		handHistory += String.format("\nMatch dealerButton %s", players.get(buttonSeat).getName());
+		handHistory.append(String.format("\nMatch hand %d", handNumber));
+		handHistory.append(String.format("\nMatch dealerButton %s", players.get(buttonSeat).getName()));
 		for(int i = 0; i < numberOfBots; i++)
 			if(botStacks[i] > 0)
-				handHistory += String.format("\n%s stack %d", players.get(i).getName(), botStacks[i]);
+				handHistory.append(String.format("\n%s stack %d", players.get(i).getName(), botStacks[i]));
 	}
 	
 	
@@ -911,12 +1034,12 @@ public class MatchPlayer
 			
 			// send a message to all other bots about the action and store it in the history
 			if(botAction.equals(originalAction) && botActionAmount == originalActionAmount) {
-				handHistory += String.format("\n%s %s %d %d", players.get(activeSeat).getName(), botAction,
-					botBetsThisRound[activeSeat], extraInfo);
+				handHistory.append(String.format("\n%s %s %d %d", players.get(activeSeat).getName(), botAction,
+					botBetsThisRound[activeSeat], extraInfo));
 			}
 			else {
-				handHistory += String.format("\n%s %s %d %d %s %d %s", players.get(activeSeat).getName(), botAction,
-					botBetsThisRound[activeSeat], extraInfo, originalAction, originalActionAmount, error);
+				handHistory.append(String.format("\n%s %s %d %d %s %d %s", players.get(activeSeat).getName(), botAction,
+					botBetsThisRound[activeSeat], extraInfo, originalAction, originalActionAmount, error));
 			}
 			sendMoveInfo(botAction, activeSeat, botActionAmount);
 			
@@ -990,7 +1113,8 @@ public class MatchPlayer
 					Card card4 = deck.nextCard();
 					botHands[index] = new HandOmaha(card1, card2, card3, card4);
 				}
-				handHistory += String.format("\n%s hand %s", players.get(index).getName(), botHands[index].toString());
+				handHistory.append(String.format("\n%s hand %s", players.get(index).getName(),
+												 botHands[index].toString()));
 			}
 		}
 		sendHandInfo(HandInfoType.HAND_CARDS);
@@ -1007,12 +1131,12 @@ public class MatchPlayer
 	private boolean dealNextStreet()
 	{
 		// if actions have been made after the previous street was dealt, then display the current pot size again
-		if(!handHistory.endsWith("]"))
+		if(!historyEndsWith("]"))
 		{
-			ArrayList<Integer> allPots = pot.getPots(botsInvolvedToArrayList());			
-			handHistory += String.format("\nMatch pot %d", allPots.get(0));
-			for(int i = 1; i < allPots.size(); i++)
-				handHistory += String.format("\nMatch sidepot%d %d", i, allPots.get(i));
+			int numberOfPots = pot.getPots(isInvolvedInHand, potSizes);
+			handHistory.append(String.format("\nMatch pot %d", potSizes[0]));
+			for(int i = 1; i < numberOfPots; i++)
+				handHistory.append(String.format("\nMatch sidepot%d %d", i, potSizes[i]));
 		}
 
 		// return if no new street has to be dealt
@@ -1039,7 +1163,7 @@ public class MatchPlayer
 			table += "," + tableCards.get(i).toString();
 		table += "]";			
 		sendHandInfo(HandInfoType.NEW_BETROUND);
-		handHistory += "\nMatch table " + table;
+		handHistory.append("\nMatch table " + table);
 		
 		// output odds information
 		updateBotOdds();		
@@ -1056,13 +1180,14 @@ public class MatchPlayer
 		if(!noSmallBlindPayed)
 		{
 			botBetsThisRound[smallBlindSeat] = placeBet(sizeSB, smallBlindSeat);
-			handHistory += String.format("\n%s post %s", players.get(smallBlindSeat).getName(),
-					botBetsThisRound[smallBlindSeat]);
+			handHistory.append(String.format("\n%s post %s", players.get(smallBlindSeat).getName(),
+					botBetsThisRound[smallBlindSeat]));
 			sendMoveInfo("post", smallBlindSeat, botBetsThisRound[smallBlindSeat]);
 		}
 		
 		botBetsThisRound[bigBlindSeat] = placeBet(sizeBB, bigBlindSeat);
-		handHistory += String.format("\n%s post %s", players.get(bigBlindSeat).getName(), botBetsThisRound[bigBlindSeat]);
+		handHistory.append(String.format("\n%s post %s", players.get(bigBlindSeat).getName(),
+				botBetsThisRound[bigBlindSeat]));
 		sendMoveInfo("post", bigBlindSeat, botBetsThisRound[bigBlindSeat]);
 		
 		// update the number of hands each bot has played since paying the big blind
@@ -1088,7 +1213,7 @@ public class MatchPlayer
 		
 		botStacks[botIndex] -= size;
 		botBetsThisRound[botIndex] += size;
-		pot.addBet(players.get(botIndex), size, round);
+		pot.addBet(botIndex, size, round);
 		return size;
 	}
 	
@@ -1104,66 +1229,57 @@ public class MatchPlayer
 	
 	
 	/**
-	 * Performs a number of random card drawings for the remaining board cards and uses this to compute the winning
-	 * chance per bot. The chance per bot is computed as percentages multiplied with 10, for example 29.0% is stored as
-	 * 290 so that simple integer representation is used with precision high enough. The odds information is added to
-	 * the stored match history.
+	 * Starts the computation of the winning chance per bot for the remaining board cards. On the flop and the turn all
+	 * possible run-outs are enumerated, preflop the heads-up table or a number of random card drawings is used. The
+	 * computation works on a copy of the current cards and, in EAGER mode, runs in the background so that the next bot
+	 * can be asked for its action right away. The history written so far is put aside with the computation and the
+	 * odds lines are inserted after it when the history is written. In LAZY mode only the copy of the cards is kept
+	 * under the current hand number, and in OFF mode nothing is done.
 	 */
 	private void updateBotOdds()
 	{
-		// set the current deck status as the starting point for each random draw
-		deck.setSavePoint();
-		int[] winsPerBot = new int[numberOfBots];
+		if(oddsMode == OddsMode.OFF)
+			return;
 		
-		// perform the given number of random draws for table cards and count the winners
-		for(int n = 0; n < ODDS_RUNS; n++)
+		if(oddsMode == OddsMode.LAZY)
 		{
-			Vector<Card> tempTableCards = (Vector<Card>) tableCards.clone();
-			while(tempTableCards.size() < 5)
-				tempTableCards.add(deck.nextCard());
-			
-			int[] botHandStrengths = computeHandStrengths(botHands, tempTableCards);			
-			int maxStrength = -1;
-			ArrayList<Integer> winnerIndex = new ArrayList<Integer>();
-			for(int i = 0; i < numberOfBots; i++)
-		    {
-				if(isInvolvedInHand[i] && botHandStrengths[i] >= maxStrength)
-				{
-					if(botHandStrengths[i] > maxStrength)
-					{
-						winnerIndex.clear();
-						maxStrength = botHandStrengths[i];
-					}
-					winnerIndex.add(i);
-				}
+			List<PendingOdds> updates = lazyOdds.get(handNumber);
+			if(updates == null)
+			{
+				updates = new ArrayList<PendingOdds>();
+				lazyOdds.put(handNumber, updates);
 			}
-			
-			// keep track of the number of wins per bot in this simulation
-			for(int i = 0; i < winnerIndex.size(); i++)
-				winsPerBot[winnerIndex.get(i)]++;
-				
-			// restore the deck to the current state
-			deck.restoreToSavePoint();
-			tempTableCards.clear();
-			
-			// if all cards are on table, one run is sufficient, so make the stopping condition true
-			if(tableCards.size() == 5)
-				n = ODDS_RUNS;
+			updates.add(new PendingOdds(null, botHands.clone(), isInvolvedInHand.clone(),
+										new ArrayList<Card>(tableCards), deck.getRemainingCards()));
+			return;
 		}
 		
-		// compute the total sum of winnings and use this to calculate the winning percentages
-		int sum = 0;
-		for(int i = 0; i < numberOfBots; i++)
-			if(isInvolvedInHand[i])
-				sum += winsPerBot[i];
-				
+		PendingOdds odds = new PendingOdds(handHistory.toString(), botHands.clone(), isInvolvedInHand.clone(),
+										   new ArrayList<Card>(tableCards), deck.getRemainingCards());
+		if(oddsMode == OddsMode.EAGER)
+			odds.start(oddsExecutor, equityCalculator);
+		pendingOdds.add(odds);
+		handHistory.setLength(0);
+	}
+	
+	
+	/**
+	 * Writes the history lines with the odds of all bots to the history sink. The chance per bot is given as
+	 * percentages multiplied with 10, for example 29.0% is stored as 290 so that simple integer representation is used
+	 * with precision high enough.
+	 * @param oddsPerBot : the winning chance per bot.
+	 * @param involved : which bots were involved in the hand when the odds were computed.
+	 */
+	private void writeOdds(int[] oddsPerBot, boolean[] involved)
+	{
+		
 		// output the odds of the involved players
 		for(int i = 0; i < numberOfBots; i++)
 		{
 			String percentage;
-			if(isInvolvedInHand[i])
+			if(involved[i])
 			{
-				int percTimesTen = (int) Math.round(1000*winsPerBot[i] / (sum + .0));
+				int percTimesTen = oddsPerBot[i];
 				percentage = Integer.toString(percTimesTen);
 				// below 1%, add the zero that comes in font of the dot
 				if(percTimesTen < 10)
@@ -1174,76 +1290,54 @@ public class MatchPlayer
 			} else {
 				percentage = "0.0";
 			}
-			handHistory += String.format("\n%s odds %s%%", players.get(i).getName(), percentage);
+			historySink.write(String.format("\n%s odds %s%%", players.get(i).getName(), percentage));
 		}
 	}
 	
 	
+	/**
+	 * Returns whether the hand history ends with the given text, also when the last lines are odds that are still put
+	 * aside. Odds are written for every bot, so in that case the history ends with a percent sign.
+	 * @param suffix : the text to check for.
+	 */
+	private boolean historyEndsWith(String suffix)
+	{
+		if(handHistory.length() == 0 && !pendingOdds.isEmpty() && pendingOdds.get(pendingOdds.size() - 1).hasOdds())
+			return "%".endsWith(suffix);
+		int start = handHistory.length() - suffix.length();
+		return start >= 0 && handHistory.indexOf(suffix, start) == start;
+	}
+	
+	
 	/**
 	 * Compute the strength of the given bot's hands for a given set of table cards. Returns an integer array of 
-	 * strengths, with value -1 for the bots that are not involved in the hand anymore.
+	 * strengths, with value -1 for the bots that are not involved in the hand anymore. The array is reused for every
+	 * hand.
 	 * @param cHands : the hands of the bots, array should have length equal to 'numberOfBots'.
 	 * @param cBoard : vector of five Card objects representing the table cards.
 	 */
 	private int[] computeHandStrengths(Hand[] cHands, Vector<Card> cBoard)
 	{
-		int[] botHandStrengths = new int[numberOfBots];		
+		int[] botHandStrengths = handStrengths;
+		long boardCode = 0l;
+		for(int j = 0; j < cBoard.size(); j++)
+			boardCode = boardCode | cBoard.get(j).getNumber();
+		if(gameType == OMAHA)
+			preparedBoard.prepare(boardCode);
+		
 		for(int i = 0; i < numberOfBots; i++)
 		{
 			if(isInvolvedInHand[i])
 			{				
 				// calculate the combination strength of the hand, evaluation procedure depends on the game type
+				long handCode = 0l;
+				for(int j = 0; j < cHands[i].getNumberOfCards(); j++)
+					handCode = handCode | cHands[i].getCard(j).getNumber();
+				
 				if(gameType == HOLDEM)
-				{
-					// store the hand and table cards together
-					long combinationCode = 0l;
-					for(int j = 0; j < cHands[i].getNumberOfCards(); j++)
-						combinationCode = combinationCode | cHands[i].getCard(j).getNumber();
-					for(int j = 0; j < cBoard.size(); j++)
-						combinationCode = combinationCode | cBoard.get(j).getNumber();
-					
-					botHandStrengths[i] = HandEval.hand7Eval(combinationCode);
-				}
-				/* TODO: a smarter way of computing the hand strength for Omaha might speed up this part of code.
-				 * Currently, the strength of all 60 possible combinations of two hand cards and three table cards is
-				 * computed to find the real hand strength. Maybe not interesting as long as Omaha is not played or
-				 * as long as it is no computational bottleneck.
-				 */
+					botHandStrengths[i] = handEvaluator.evaluate7(handCode | boardCode);
 				else if(gameType == OMAHA)
-				{
-					int strength = 0;
-					// loop over all 6 possible combinations of 2 cards out of 4 hand cards
-					for(int j = 0; j < 3; j++)
-					{
-						for(int k = j + 1; k < 4; k++)
-						{
-							// loop over all 10 possible combinations of 3 cards out of 5 board cards
-							for(int m = 0; m < 3; m++)
-							{
-								for(int n = m + 1; n < 4; n++)
-								{
-									for(int r = n + 1; r < 5; r++)
-									{
-										try
-										{
-											long combinationCode = cHands[i].getCard(j).getNumber() |
-																   cHands[i].getCard(k).getNumber() |
-																   cBoard.get(m).getNumber() |
-																   cBoard.get(n).getNumber() |
-																   cBoard.get(r).getNumber();
-											strength = Math.max(strength, HandEval.hand5Eval(combinationCode));
-										}
-										catch(java.lang.ArrayIndexOutOfBoundsException e)
-										{
-											System.err.println("Error in Omaha hand strength calculation " + e);
-										}
-									}
-								}
-							}
-						}
-					}
-					botHandStrengths[i] = strength;		
-				}
+					botHandStrengths[i] = preparedBoard.evaluateOmaha(handCode);
 			}
 			else
 				botHandStrengths[i] = -1;
@@ -1263,54 +1357,43 @@ public class MatchPlayer
 		// check whether everyone but one player folded, if not we have to compute hand strengths
 		int numberOfBotsOnShowdown = numberOfRemainingBots(1);
 		
-		// create a map of hand strength of all the involved bots
-		HashMap<Player, Integer> botHandStrengths = new HashMap<Player, Integer>();	
+		// compute the hand strength of all the involved bots, -1 for the other bots
+		int[] botHandStrengths;
 		if(numberOfBotsOnShowdown >= 2)
 		{			
-			int[] handStrengths = computeHandStrengths(botHands, tableCards);
+			botHandStrengths = computeHandStrengths(botHands, tableCards);
 			for(int i = 0; i < numberOfBots; i++)
-				if(handStrengths[i] >= 0) {
-					botHandStrengths.put(players.get(i), handStrengths[i]);
-					handHistory += String.format("\n%s strength %s", botCodeNames[i], rankToCategory(handStrengths[i]));
+				if(botHandStrengths[i] >= 0) {
+					handHistory.append(String.format("\n%s strength %s", botCodeNames[i],
+													 rankToCategory(botHandStrengths[i])));
 				}
 		}
 		else
 		{
+			botHandStrengths = handStrengths;
 			for(int i = 0; i < numberOfBots; i++)
 			{
 				if(isInvolvedInHand[i])
-					botHandStrengths.put(players.get(i), 1);
+					botHandStrengths[i] = 1;
+				else
+					botHandStrengths[i] = -1;
 			}
 		}
 			
-		// retrieve the information about the main pot and side pots and the winning bots per pot part
-		Pot.PayoutWinnerInfo winnerInfo = pot.payoutWinners(botHandStrengths);
-		ArrayList<Integer> potParts = winnerInfo.getPots();
-		ArrayList<ArrayList<Player>> potPartWinners = winnerInfo.getWinnerPerPot();
-		
-		// divide each pot part among the bots that win them
-		int[] winPerBot = new int[numberOfBots];
-		for(int i = potParts.size() - 1; i >= 0; i--)
+		// divide the pots among the bots that win them, the odd chips go first to the seat after the button
+		pot.payoutWinners(botHandStrengths, (buttonSeat + 1) % numberOfBots, payout);
+		int[] winPerBot = payout.getWinPerSeat();
+		for(int i = payout.getNumberOfPots() - 1; i >= 0; i--)
 		{
-			ArrayList<Player> currentPotWinners = potPartWinners.get(i);
-			int currentPotSize = potParts.get(i);
-			int numberOfWinners = currentPotWinners.size();
-			int amountPerWinner = currentPotSize / numberOfWinners;
-			int restChips = currentPotSize - (numberOfWinners*amountPerWinner);
 			int currentSeat = (buttonSeat + 1) % numberOfBots;
 			
 			String potWinnersStr = "[";
 			while(true)
 			{
-				Player currentBot = players.get(currentSeat);
-				if(currentPotWinners.contains(currentBot))
+				if(payout.isWinner(i, currentSeat))
 				{
-					int currentWinAmount = amountPerWinner;
-					if(restChips-- > 0)
-						currentWinAmount++;
-					
-					potWinnersStr += String.format("%s:%d,", currentBot.getName(), currentWinAmount);
-					winPerBot[currentSeat] += currentWinAmount;
+					potWinnersStr += String.format("%s:%d,", players.get(currentSeat).getName(),
+												   payout.getWinnings(i, currentSeat));
 				}
 				currentSeat = (currentSeat + 1) % numberOfBots;
 				if(currentSeat == (buttonSeat + 1) % numberOfBots)
@@ -1320,9 +1403,9 @@ public class MatchPlayer
 			potWinnersStr += "]";
 
 			if(i > 0)
-				handHistory += String.format("\nResult sidepot%d %s", i, potWinnersStr);
+				handHistory.append(String.format("\nResult sidepot%d %s", i, potWinnersStr));
 			else
-				handHistory += String.format("\nResult pot %s", potWinnersStr);			
+				handHistory.append(String.format("\nResult pot %s", potWinnersStr));			
 		}
 
 		// return the winnings per bot to their stacks and send the information to all the bots
@@ -1334,19 +1417,6 @@ public class MatchPlayer
 	}
 	
 	
-	/**
-	 * Returns an ArrayList of all bots that are involved in the current hand.
-	 */
-	private ArrayList<Player> botsInvolvedToArrayList()
-	{
-		ArrayList<Player> botsInvolved = new ArrayList<Player>();
-		for(int i = 0; i < isInvolvedInHand.length; i++)
-			if(isInvolvedInHand[i])
-				botsInvolved.add(players.get(i));		
-		return botsInvolved;
-	}
-	
-	
 	/**
 	 * Sends the match information to all the bots that are playing at this table. Gives the bots some time to prepare
 	 * for playing a match, the method waits for all bots to return from setup for a maximum time of 'SETUP_TIME'. This
@@ -1359,14 +1429,9 @@ public class MatchPlayer
 									   HANDS_PER_BLINDLEVEL, SIZE_STARTSTACK, sizeBB, sizeSB,
 									   numberOfPlayersInTournament, numberOfPricesInTournament);	
 		
-		for(int i = 0; i < numberOfBots; i++)
-		{
-			if(isInvolvedInMatch[i])
-			{
-				info.setCurrentBotInfo(i);
-				players.get(i).sendInfo(info.toString());
-			}
-		}		
+		// the match information does not depend on the seat of the bot that receives it
+		info.setCurrentBotInfo(0);
+		broadcast(info.appendTo(message.clear()));
 	}
 	
 	
@@ -1381,12 +1446,17 @@ public class MatchPlayer
 									 players, botCodeNames, botStacks, sizeBB, sizeSB, buttonSeat,
 									 tableCards.toString().replaceAll("\\s", ""));
 		
+		if(info.isShared())
+		{
+			broadcast(info.appendTo(message.clear()));
+			return;
+		}
 		for(int i = 0; i < numberOfBots; i++)
 		{
 			if(isInvolvedInMatch[i])
 			{
 				info.setCurrentBotInfo(i, botHands[i]);
-				players.get(i).sendInfo(info.toString());
+				players.get(i).sendInfo(info.appendTo(message.clear()));
 			}
 		}
 	}
@@ -1403,7 +1473,7 @@ public class MatchPlayer
 		if(botStacks[activeSeat] < amountToCall)
 		{
 			amountToCall = botStacks[activeSeat];
-			maxPotSizeToWin = pot.getMaxPotToWin(players.get(activeSeat), amountToCall);
+			maxPotSizeToWin = pot.getMaxPotToWin(activeSeat, amountToCall);
 		}
 		else
 			maxPotSizeToWin = pot.getTotalPotSize();
@@ -1411,7 +1481,7 @@ public class MatchPlayer
 		PreMoveInfo info = new PreMoveInfo(maxPotSizeToWin, amountToCall);
 		
 		// The pre-move info only goes to the active bot.
-		players.get(activeSeat).sendInfo(info.toString());
+		players.get(activeSeat).sendInfo(info.appendTo(message.clear()));
 	}
 	
 	
@@ -1425,9 +1495,7 @@ public class MatchPlayer
 	{
 		PokerMove move = new PokerMove(action, amount);
 		move.setPlayer(botCodeNames[playerIndex]);
-		for(int i = 0; i < numberOfBots; i++)
-			if(isInvolvedInMatch[i])
-				players.get(i).sendInfo(move.toString());
+		broadcast(move.appendTo(message.clear()));
 	}
 	
 	
@@ -1446,9 +1514,20 @@ public class MatchPlayer
 				if(isInvolvedInHand[i])
 					resultInfo.setBotHand(i, botHands[i]);
 		}
+		broadcast(resultInfo.appendTo(message.clear()));
+	}
+	
+	
+	/**
+	 * Sends the same message to all bots that are still in the match. The message is encoded only once, after which
+	 * the same bytes are written to every bot.
+	 * @param message : the lines of the message.
+	 */
+	private void broadcast(ProtocolWriter message)
+	{
 		for(int i = 0; i < numberOfBots; i++)
 			if(isInvolvedInMatch[i])
-				players.get(i).sendInfo(resultInfo.toString());
+				players.get(i).sendInfo(message);
 	}
 	
 	private void outputErrorToBot(int seat, String output) 
@@ -1464,15 +1543,44 @@ public class MatchPlayer
 	}
 
 	/**
-	 * Writes the history that is currently stored in 'handHistory' to the standard out channel and empties the string
-	 * afterwards. Should be called after each finished hand. This print information is kept locally and is not meant
-	 * to be communicated to the bots.
+	 * Writes the history that is currently stored in 'handHistory' to the history sink and empties it afterwards.
+	 * Should be called after each finished hand, the odds of the hand that are still being computed are waited for.
+	 * This print information is kept locally and is not meant to be communicated to the bots.
 	 */
 	private void writeHistory()
 	{
-		allHistory += handHistory;
+		pendingOdds.add(new PendingOdds(handHistory.toString()));
+		resolveHistory();
 //		System.out.println(handHistory);
-		handHistory = "";
+		handHistory.setLength(0);
+	}
+	
+	
+	/**
+	 * Writes the history of the current hand that was put aside to the history sink, with the odds lines at the place
+	 * where they were started. Waits for the odds computations that are still running.
+	 */
+	private void resolveHistory()
+	{
+		for(PendingOdds odds : pendingOdds)
+		{
+			historySink.write(odds.historyBefore);
+			if(odds.hasOdds())
+			{
+				lastEquity = odds.getEquity(oddsExecutor, equityCalculator);
+				writeOdds(lastEquity.getOdds(), odds.involved);
+			}
+		}
+		pendingOdds.clear();
+	}
+	
+	
+	/**
+	 * Closes the history sink. Should be called once at the end of the match.
+	 */
+	public void closeHistory()
+	{
+		historySink.close();
 	}
 	
 	public Player getWinner() 
@@ -1493,13 +1601,151 @@ public class MatchPlayer
 		return this.handNumber;
 	}
 	
+	/**
+	 * @return : the last computed winning chances of the bots, with the number of samples and their standard error,
+	 * or null if no odds were computed yet.
+	 */
+	public EquityResult getLastEquity()
+	{
+		return this.lastEquity;
+	}
+	
+	/**
+	 * @return : the history of all finished hands, or null if the history sink does not keep the history in memory.
+	 */
 	public String getHistory()
 	{
-		return this.allHistory;
+		return historySink.getHistory();
+	}
+	
+	/**
+	 * Computes the winning chances of the bots at every odds update of the given hand, in LAZY mode. The odds of a
+	 * hand are only computed when this method is called for it. The cards are only kept for the last 1000 hands, and
+	 * not for hands that were released with releaseHandOdds, so that the memory use does not grow with the length of
+	 * the match.
+	 * @param number : the number of the hand.
+	 * @return : the odds per update in the order of the hand, or null if no cards were kept for that hand.
+	 */
+	public List<EquityResult> getHandOdds(int number)
+	{
+		List<PendingOdds> updates = lazyOdds.get(number);
+		if(updates == null)
+			return null;
+		
+		List<EquityResult> handOdds = new ArrayList<EquityResult>(updates.size());
+		for(PendingOdds odds : updates)
+		{
+			lastEquity = odds.getEquity(oddsExecutor, equityCalculator);
+			handOdds.add(lastEquity);
+		}
+		return handOdds;
+	}
+	
+	/**
+	 * Drops the cards that were kept for the odds of the given hand in LAZY mode, for example once its odds were
+	 * computed or are known not to be needed. getHandOdds returns null for the hand afterwards.
+	 * @param number : the number of the hand.
+	 */
+	public void releaseHandOdds(int number)
+	{
+		lazyOdds.remove(number);
 	}
 	
 	public boolean isTournament()
 	{
 		return this.isTournament;
 	}
+	
+	
+	/**
+	 * Creates the executor for the odds computations. It has at most one daemon thread, so the computations are done
+	 * in the order in which they are started, and the thread stops when no odds are computed for a while.
+	 */
+	private static ExecutorService createOddsExecutor()
+	{
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+															 new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+		{
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "odds");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	
+	/**
+	 * An odds update that is not written to the history yet, together with the hand history that was written before
+	 * it. Keeps a copy of the cards, so that the odds can be computed in the background or later on demand. The last
+	 * part of a hand is kept as history without odds, and in LAZY mode only the cards are kept, without history.
+	 */
+	private static class PendingOdds
+	{
+		private String historyBefore;
+		private Hand[] hands;
+		private boolean[] involved;
+		private List<Card> tableCards;
+		private int[] stubCards;
+		private Future<EquityResult> equity;
+		
+		PendingOdds(String historyBefore)
+		{
+			this.historyBefore = historyBefore;
+		}
+		
+		PendingOdds(String historyBefore, Hand[] hands, boolean[] involved, List<Card> tableCards, int[] stubCards)
+		{
+			this.historyBefore = historyBefore;
+			this.hands = hands;
+			this.involved = involved;
+			this.tableCards = tableCards;
+			this.stubCards = stubCards;
+		}
+		
+		boolean hasOdds()
+		{
+			return involved != null;
+		}
+		
+		/**
+		 * Starts the computation of the odds on the given executor.
+		 */
+		void start(ExecutorService executor, final EquityCalculator calculator)
+		{
+			equity = executor.submit(new Callable<EquityResult>()
+			{
+				public EquityResult call()
+				{
+					return calculator.computeEquity(hands, involved, tableCards, stubCards);
+				}
+			});
+		}
+		
+		/**
+		 * Waits for the computation to finish and returns its result, the computation is started first if that has
+		 * not happened yet. It always runs on the executor, so that the calculator is used by one thread only.
+		 */
+		EquityResult getEquity(ExecutorService executor, EquityCalculator calculator)
+		{
+			if(equity == null)
+				start(executor, calculator);
+			try
+			{
+				return equity.get();
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the odds", e);
+			}
+			catch(ExecutionException e)
+			{
+				throw new IllegalStateException("Computing the odds failed", e.getCause());
+			}
+		}
+	}
 }
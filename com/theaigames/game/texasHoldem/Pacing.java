@@ -0,0 +1,118 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Pacing policy for the pause after every hand. A pause gives the bot processes and the rest of the machine some cpu
+ * time, but also limits the number of hands per second, so it can be switched off, made fixed, or only be taken when
+ * the machine is busy.
+ */
+public class Pacing
+{
+	public enum Mode
+	{
+		NONE, FIXED, CPU_THRESHOLD;
+	}
+	
+	private static final long LOAD_CHECK_INTERVAL = 1000;	// milliseconds between two reads of the system load
+	
+	private Mode mode;
+	private long delay;						// pause in milliseconds, 0 only yields the thread
+	private double loadThreshold;			// system load per processor above which the pause is taken
+	private OperatingSystemMXBean system;
+	private long nextLoadCheck;				// time in milliseconds at which the system load is read again
+	private boolean isBusy;					// whether the system load was above the threshold at the last check
+	
+	private Pacing(Mode mode, long delay, double loadThreshold)
+	{
+		this.mode = mode;
+		this.delay = delay;
+		this.loadThreshold = loadThreshold;
+		if(mode == Mode.CPU_THRESHOLD)
+			system = ManagementFactory.getOperatingSystemMXBean();
+	}
+	
+	
+	/**
+	 * Returns a policy that never pauses, so that matches run at full engine speed.
+	 */
+	public static Pacing none()
+	{
+		return new Pacing(Mode.NONE, 0, 0);
+	}
+	
+	
+	/**
+	 * Returns a policy that pauses for the given time after every hand.
+	 * @param delay : the pause in milliseconds.
+	 */
+	public static Pacing fixed(long delay)
+	{
+		return new Pacing(Mode.FIXED, delay, 0);
+	}
+	
+	
+	/**
+	 * Returns a policy that only pauses when the average system load per processor is above the given threshold, for
+	 * example 1.0 when there are more runnable threads than processors. The load is read at most once per second. If
+	 * the platform does not report the system load, the pause is always taken.
+	 * @param loadThreshold : the system load per processor above which the pause is taken.
+	 * @param delay : the pause in milliseconds, 0 only yields the cpu to other threads.
+	 */
+	public static Pacing cpuThreshold(double loadThreshold, long delay)
+	{
+		return new Pacing(Mode.CPU_THRESHOLD, delay, loadThreshold);
+	}
+	
+	
+	/**
+	 * Pauses the current thread according to this policy, called after every hand.
+	 */
+	public void pause()
+	{
+		if(mode == Mode.NONE || (mode == Mode.CPU_THRESHOLD && !isBusy()))
+			return;
+		
+		if(delay <= 0)
+		{
+			Thread.yield();
+			return;
+		}
+		try {Thread.sleep(delay);}
+		catch (InterruptedException e) {Thread.currentThread().interrupt();}
+	}
+	
+	
+	/**
+	 * Returns whether the system load per processor is above the threshold, reading the load at most once per second.
+	 */
+	private boolean isBusy()
+	{
+		long now = System.currentTimeMillis();
+		if(now >= nextLoadCheck)
+		{
+			double load = system.getSystemLoadAverage();
+			isBusy = load < 0 || load / system.getAvailableProcessors() > loadThreshold;
+			nextLoadCheck = now + LOAD_CHECK_INTERVAL;
+		}
+		return isBusy;
+	}
+}
@@ -20,7 +20,12 @@ package com.theaigames.game.texasHoldem;
 import java.io.IOException;
 
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.LineEncoder;
+import com.theaigames.engine.io.ResponseFilter;
 import com.theaigames.game.texasHoldem.move.PokerMove;
+import com.theaigames.game.texasHoldem.protocol.MoveParser;
+import com.theaigames.game.texasHoldem.protocol.ParseResult;
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
 
 /**
  * Class that represents one Robot object and stores additional information such as the name that the bot receives and
@@ -33,6 +38,9 @@ public class Player
 	private long timeBank;
 	private long maxTimeBank;
 	private long timePerMove;
+	private ProtocolWriter request;
+	private MoveParser parser;
+	private ResponseFilter isReply;
 	
 	public Player(String name, IOPlayer bot, long maxTimeBank, long timePerMove)
 	{
@@ -40,6 +48,16 @@ public class Player
 		this.name = name;
 		this.maxTimeBank = maxTimeBank;
 		this.timePerMove = timePerMove;
+		this.request = new ProtocolWriter();
+		this.parser = new MoveParser();
+		
+		// output of the bot that does not start with an action, such as debug lines, is not taken as its reply, while a
+		// malformed reply is, so that requestMove can report it
+		this.isReply = new ResponseFilter() {
+			public boolean accepts(String line) {
+				return MoveParser.startsWithAction(line);
+			}
+		};
 	}
 	
 	/**
@@ -89,29 +107,32 @@ public class Player
 		}
 	}
 	
+	/**
+	 * Sends lines that were already encoded, so the same bytes can be sent to every bot at the table
+	 * @param lines : the lines to send, each with its line end
+	 */
+	public void sendInfo(LineEncoder lines)
+	{
+		this.bot.processEncoded(lines);
+	}
+	
 	public PokerMove requestMove() 
 	{
 		long startTime = System.currentTimeMillis();
 		
-		try {
-			this.bot.process(String.format("Action %s %d", this.name, this.timeBank), "input");
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		this.bot.processEncoded(this.request.clear().action(this.name, this.timeBank));
 		
-		String response = this.bot.getResponse(this.timeBank);
+		String response = this.bot.getResponse(this.timeBank, this.isReply);
 		long timeElapsed = System.currentTimeMillis() - startTime;
 		updateTimeBank(timeElapsed);
 		
-		if(response == "") {
+		ParseResult result = this.parser.parse(response);
+		if(result == ParseResult.OK)
+			return new PokerMove(this.parser.getAction(), this.parser.getAmount());
+		else if(result == ParseResult.EMPTY)
 			bot.addToDump("Error, action set to 'check'");
-		} else {
-			String[] parts = response.split("\\s");
-			if(parts.length != 2)
-				bot.addToDump("Bot input '" + response + "' does not split into two parts. Action set to \"check\"");
-	    	else
-	        	return new PokerMove(parts[0], (int) Double.parseDouble(parts[1]));
-		}
+		else
+			bot.addToDump("Bot input '" + response + "' " + result.getDescription() + ". Action set to \"check\"");
 		
 		return new PokerMove("check", 0);
 	}
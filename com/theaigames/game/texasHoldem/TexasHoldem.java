@@ -19,10 +19,18 @@ package com.theaigames.game.texasHoldem;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.concurrent.ThreadFactory;
 
 import com.theaigames.engine.Engine;
 import com.theaigames.engine.Logic;
+import com.theaigames.engine.io.ChunkedFileWriter;
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.BotThreads;
+import com.theaigames.game.texasHoldem.eval.DefaultHandEvaluator;
+import com.theaigames.game.texasHoldem.eval.HandEvaluator;
+import com.theaigames.game.texasHoldem.history.StreamHandHistorySink;
+import com.theaigames.game.texasHoldem.odds.OddsMode;
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
 
 import java.lang.Thread;
 
@@ -39,6 +47,13 @@ public class TexasHoldem implements Logic
     private final int STARTING_STACK = 500;
     private final int MAX_HANDS = Integer.MAX_VALUE;
     private final int MAX_PLAYERS_LEFT = 1;
+	private final HandEvaluator HAND_EVALUATOR = new DefaultHandEvaluator();	// or the fastest one in HandEvaluatorBenchmark
+	private final OddsMode ODDS_MODE = OddsMode.EAGER;	// OFF when nobody reads the odds in the hand history
+	private final String RECORDING_FOLDER = null;		// folder for history and bot dumps, null keeps them in memory
+	private final int RECORDING_CHUNK_SIZE = 1 << 16;	// characters that are written to a recording file at once
+	private final int RECORDING_MAX_BUFFERED = 1 << 20;	// characters kept in memory per recording file
+	private final Pacing PACING = Pacing.cpuThreshold(1.0, 5);	// pause 5 ms per hand only when the cpu is overloaded
+	private final ThreadFactory BOT_THREADS = BotThreads.platform();	// virtualIfAvailable() for many tables
  
 	
 	public TexasHoldem()
@@ -65,6 +80,11 @@ public class TexasHoldem implements Logic
         // start the match player and send setup info to bots
         System.out.println("starting game ...");
 		matchPlayer = new MatchPlayer(players, GAME_TYPE, STARTING_STACK);
+		matchPlayer.setHandEvaluator(HAND_EVALUATOR);
+		matchPlayer.setOddsMode(ODDS_MODE);
+		matchPlayer.setPacing(PACING);
+		if(RECORDING_FOLDER != null)
+			startRecording();
 		matchPlayer.finishSetup(true);
 		
 		// set the timebank to maximum amount to start with and send timebank info
@@ -115,11 +135,32 @@ public class TexasHoldem implements Logic
         System.exit(0);
 	}
 
+	// streams the hand history, the bot dumps and the bot output to files in the recording folder while the match is played
+	private void startRecording() throws IOException
+	{
+		File folder = new File(RECORDING_FOLDER);
+		folder.mkdirs();
+		matchPlayer.setHistorySink(new StreamHandHistorySink(
+			new ChunkedFileWriter(new File(folder, "history.txt"), RECORDING_CHUNK_SIZE, RECORDING_MAX_BUFFERED)));
+		for(Player player : players)
+		{
+			player.getBot().recordDump(new ChunkedFileWriter(new File(folder, player.getName() + "_dump.txt"),
+															 RECORDING_CHUNK_SIZE, RECORDING_MAX_BUFFERED));
+			player.getBot().recordOutput(
+				new ChunkedFileWriter(new File(folder, player.getName() + "_stdout.txt"),
+									  RECORDING_CHUNK_SIZE, RECORDING_MAX_BUFFERED),
+				new ChunkedFileWriter(new File(folder, player.getName() + "_stderr.txt"),
+									  RECORDING_CHUNK_SIZE, RECORDING_MAX_BUFFERED));
+		}
+	}
+	
 	private void sendSettings(Player player)
 	{
-		player.sendInfo("Settings your_bot " + player.getName());
-		player.sendInfo("Settings timebank " + TIMEBANK_MAX);
-		player.sendInfo("Settings time_per_move " + TIME_PER_MOVE); 
+		ProtocolWriter settings = new ProtocolWriter();
+		settings.settings("your_bot", player.getName());
+		settings.settings("timebank", TIMEBANK_MAX);
+		settings.settings("time_per_move", TIME_PER_MOVE);
+		player.sendInfo(settings);
 	}
 	
 	public void saveGame() throws Exception {
@@ -136,6 +177,9 @@ public class TexasHoldem implements Logic
 		}
 		
 		System.out.println("Saving the game...");
+		this.matchPlayer.closeHistory();
+		bot1.closeDump();
+		bot2.closeDump();
 		
 		// print stuff here... (like the bot dumps)
 	}
@@ -146,8 +190,10 @@ public class TexasHoldem implements Logic
 		String bot2 = args[1];
 		
 		Engine engine = new Engine();
+		TexasHoldem game = new TexasHoldem();
 		
-		engine.setLogic(new TexasHoldem());
+		engine.setLogic(game);
+		engine.setBotThreads(game.BOT_THREADS);
 		
 		// Add players
         engine.addPlayer(bot1);
@@ -0,0 +1,48 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.eval;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * Hand evaluator that uses the bit mask algorithms of com.stevebrecher.HandEval. It needs no memory besides the small
+ * tables of HandEval and is the default evaluator.
+ */
+public class DefaultHandEvaluator implements HandEvaluator
+{
+	@Override
+	public int evaluate7(long cards)
+	{
+		return HandEval.hand7Eval(cards);
+	}
+	
+	
+	@Override
+	public int evaluate5(long cards)
+	{
+		return HandEval.hand5Eval(cards);
+	}
+	
+	
+	@Override
+	public void evaluate7(long[] cards, int[] values, int count)
+	{
+		for(int i = 0; i < count; i++)
+			values[i] = HandEval.hand7Eval(cards[i]);
+	}
+}
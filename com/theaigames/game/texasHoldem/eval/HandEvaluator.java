@@ -0,0 +1,46 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.eval;
+
+/**
+ * HandEvaluator interface
+ * 
+ * Computes the strength of poker hands. Cards are given as a long with one bit set per card, as returned by
+ * Card.getNumber(). A higher value means a stronger hand, and every implementation must return exactly the same
+ * values as com.stevebrecher.HandEval, so that implementations can be exchanged freely.
+ */
+public interface HandEvaluator
+{
+	/**
+	 * Returns the value of the best 5-card hand out of the given 7 cards.
+	 */
+	public int evaluate7(long cards);
+	
+	/**
+	 * Returns the value of the given 5-card hand.
+	 */
+	public int evaluate5(long cards);
+	
+	/**
+	 * Computes the values of many 7-card hands in one call, which lets implementations process several hands at once.
+	 * @param cards : the 7-card hands.
+	 * @param values : receives the value of every hand, at the same index.
+	 * @param count : the number of hands, starting at index 0.
+	 */
+	public void evaluate7(long[] cards, int[] values, int count);
+}
@@ -0,0 +1,311 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.eval;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Checks that every HandEvaluator ranks all 5 and 7 card hands exactly like DefaultHandEvaluator, and measures the
+ * number of hands per second each of them evaluates, so that the fastest one can be chosen for a deployment with
+ * TexasHoldem.HAND_EVALUATOR. The optional VectorHandEvaluator is included when it was compiled and the JVM is
+ * started with '--add-modules jdk.incubator.vector'. PreparedBoard is checked on random deals, against the 7 card
+ * evaluation for hold'em and against all 60 combinations of hand and table cards for omaha.
+ * <p>
+ * Usage: java com.theaigames.game.texasHoldem.eval.HandEvaluatorBenchmark [number of hands per run]
+ */
+public class HandEvaluatorBenchmark
+{
+	private static final int BATCH_SIZE = 1024;
+	
+	public static void main(String[] args)
+	{
+		int numberOfHands = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		HandEvaluator reference = new DefaultHandEvaluator();
+		HandEvaluator lookupEvaluator = new LookupHandEvaluator();
+		ArrayList<HandEvaluator> evaluators = new ArrayList<HandEvaluator>();
+		evaluators.add(reference);
+		evaluators.add(lookupEvaluator);
+		
+		// the vector evaluator only differs from the lookup evaluator in the batches
+		HandEvaluator batchEvaluator = LookupHandEvaluator.createBatchEvaluator();
+		if(batchEvaluator.getClass() != LookupHandEvaluator.class)
+			evaluators.add(batchEvaluator);
+		else
+			System.out.println("Module jdk.incubator.vector not available, skipping VectorHandEvaluator");
+		
+		verify(lookupEvaluator, reference);
+		
+		long[] hands5 = randomHands(numberOfHands, 5);
+		long[] hands7 = randomHands(numberOfHands, 7);
+		for(HandEvaluator evaluator : evaluators)
+			verifyBatches(evaluator, hands7, reference);
+		
+		// two omaha hands per table, their two lowest cards are used as hold'em hands
+		long[] tables = new long[numberOfHands / 2 + 1];
+		long[] omahaHands = new long[numberOfHands];
+		randomDeals(tables, omahaHands);
+		long[] holdemHands = new long[numberOfHands];
+		for(int i = 0; i < numberOfHands; i++)
+		{
+			long lowestCard = Long.lowestOneBit(omahaHands[i]);
+			holdemHands[i] = lowestCard | Long.lowestOneBit(omahaHands[i] ^ lowestCard);
+		}
+		verifyPreparedBoard(tables, holdemHands, omahaHands, reference);
+		
+		for(int run = 0; run < 3; run++)
+		{
+			for(HandEvaluator evaluator : evaluators)
+			{
+				long startTime = System.nanoTime();
+				int checksum = 0;
+				for(long hand : hands5)
+					checksum += evaluator.evaluate5(hand);
+				long time5 = System.nanoTime() - startTime;
+				
+				startTime = System.nanoTime();
+				for(long hand : hands7)
+					checksum += evaluator.evaluate7(hand);
+				long time7 = System.nanoTime() - startTime;
+				
+				startTime = System.nanoTime();
+				checksum += evaluateBatches(evaluator, hands7);
+				long timeBatch = System.nanoTime() - startTime;
+				
+				System.out.format("%-20s 5 cards: %6.1f M/s, 7 cards: %6.1f M/s, 7 card batches: %6.1f M/s (%d)%n",
+								  evaluator.getClass().getSimpleName(), numberOfHands*1e3 / time5,
+								  numberOfHands*1e3 / time7, numberOfHands*1e3 / timeBatch, checksum);
+			}
+			
+			// two hands on the same table, like in a heads-up showdown
+			long startTime = System.nanoTime();
+			int checksum = 0;
+			for(int i = 0; i < numberOfHands; i++)
+				checksum += lookupEvaluator.evaluate7(holdemHands[i] | tables[i / 2]);
+			long holdemTime = System.nanoTime() - startTime;
+			
+			startTime = System.nanoTime();
+			PreparedBoard board = new PreparedBoard();
+			for(int i = 0; i < numberOfHands; i++)
+			{
+				if(i % 2 == 0)
+					board.prepare(tables[i / 2]);
+				checksum += board.evaluateHoldem(holdemHands[i]);
+			}
+			long preparedHoldemTime = System.nanoTime() - startTime;
+			
+			startTime = System.nanoTime();
+			for(int i = 0; i < numberOfHands; i++)
+				checksum += bruteForceOmaha(omahaHands[i], tables[i / 2], reference);
+			long omahaTime = System.nanoTime() - startTime;
+			
+			startTime = System.nanoTime();
+			for(int i = 0; i < numberOfHands; i++)
+			{
+				if(i % 2 == 0)
+					board.prepare(tables[i / 2]);
+				checksum += board.evaluateOmaha(omahaHands[i]);
+			}
+			long preparedOmahaTime = System.nanoTime() - startTime;
+			
+			System.out.format("%-20s hold'em: %6.1f M/s, omaha: %6.1f M/s, 60 omaha combinations: %6.1f M/s (%d)%n",
+							  "PreparedBoard", numberOfHands*1e3 / preparedHoldemTime,
+							  numberOfHands*1e3 / preparedOmahaTime, numberOfHands*1e3 / omahaTime, checksum);
+			System.out.format("%-20s hold'em: %6.1f M/s%n", "Lookup, same deals", numberOfHands*1e3 / holdemTime);
+		}
+	}
+	
+	
+	/**
+	 * Compares all 5 and 7 card hands, stops with an exception at the first difference.
+	 */
+	private static void verify(HandEvaluator evaluator, HandEvaluator reference)
+	{
+		long[] deck = new long[52];
+		for(int i = 0; i < 52; i++)
+			deck[i] = 1L << (16 * (i / 13) + i % 13);
+		
+		long count5 = 0, count7 = 0;
+		for(int a = 0; a < 52; a++)
+		for(int b = a + 1; b < 52; b++)
+		for(int c = b + 1; c < 52; c++)
+		for(int d = c + 1; d < 52; d++)
+		for(int e = d + 1; e < 52; e++)
+		{
+			long hand5 = deck[a] | deck[b] | deck[c] | deck[d] | deck[e];
+			check(evaluator.evaluate5(hand5), reference.evaluate5(hand5), hand5, evaluator);
+			count5++;
+			
+			for(int f = e + 1; f < 52; f++)
+			for(int g = f + 1; g < 52; g++)
+			{
+				long hand7 = hand5 | deck[f] | deck[g];
+				check(evaluator.evaluate7(hand7), reference.evaluate7(hand7), hand7, evaluator);
+				count7++;
+			}
+		}
+		System.out.format("%s: all %d 5 card and %d 7 card hands are equal%n",
+						  evaluator.getClass().getSimpleName(), count5, count7);
+	}
+	
+	
+	/**
+	 * Compares the batch evaluation of the given 7 card hands with the single hand evaluation of the reference.
+	 */
+	private static void verifyBatches(HandEvaluator evaluator, long[] hands, HandEvaluator reference)
+	{
+		int[] values = new int[BATCH_SIZE];
+		long[] batch = new long[BATCH_SIZE];
+		for(int start = 0; start < hands.length; start += BATCH_SIZE)
+		{
+			// vary the batch size to check the hands that do not fill a whole vector as well
+			int count = Math.min(BATCH_SIZE - start % 7, hands.length - start);
+			System.arraycopy(hands, start, batch, 0, count);
+			evaluator.evaluate7(batch, values, count);
+			for(int i = 0; i < count; i++)
+				check(values[i], reference.evaluate7(batch[i]), batch[i], evaluator);
+		}
+		System.out.format("%s: all %d random 7 card hands are equal in batches%n",
+						  evaluator.getClass().getSimpleName(), hands.length);
+	}
+	
+	
+	/**
+	 * Evaluates the given 7 card hands in batches of BATCH_SIZE hands and returns the sum of the values.
+	 */
+	private static int evaluateBatches(HandEvaluator evaluator, long[] hands)
+	{
+		int[] values = new int[BATCH_SIZE];
+		long[] batch = new long[BATCH_SIZE];
+		int checksum = 0;
+		for(int start = 0; start < hands.length; start += BATCH_SIZE)
+		{
+			int count = Math.min(BATCH_SIZE, hands.length - start);
+			System.arraycopy(hands, start, batch, 0, count);
+			evaluator.evaluate7(batch, values, count);
+			for(int i = 0; i < count; i++)
+				checksum += values[i];
+		}
+		return checksum;
+	}
+	
+	
+	/**
+	 * Compares the prepared board evaluation of the given deals with the reference, for omaha with the best of all 60
+	 * combinations of hand and table cards.
+	 */
+	private static void verifyPreparedBoard(long[] tables, long[] holdemHands, long[] omahaHands,
+											HandEvaluator reference)
+	{
+		PreparedBoard board = new PreparedBoard();
+		for(int i = 0; i < omahaHands.length; i++)
+		{
+			board.prepare(tables[i / 2]);
+			int holdemValue = board.evaluateHoldem(holdemHands[i]);
+			int expected = reference.evaluate7(holdemHands[i] | tables[i / 2]);
+			if(holdemValue != expected)
+				throw new IllegalStateException(String.format("PreparedBoard gives %d instead of %d for hold'em hand %x" +
+						" on %x", holdemValue, expected, holdemHands[i], tables[i / 2]));
+			
+			int omahaValue = board.evaluateOmaha(omahaHands[i]);
+			expected = bruteForceOmaha(omahaHands[i], tables[i / 2], reference);
+			if(omahaValue != expected)
+				throw new IllegalStateException(String.format("PreparedBoard gives %d instead of %d for omaha hand %x" +
+						" on %x", omahaValue, expected, omahaHands[i], tables[i / 2]));
+		}
+		System.out.format("PreparedBoard: all %d random hold'em and omaha hands are equal%n", omahaHands.length);
+	}
+	
+	
+	private static int bruteForceOmaha(long hand, long table, HandEvaluator reference)
+	{
+		long[] handCards = splitCards(hand);
+		long[] tableCards = splitCards(table);
+		int strength = 0;
+		for(int j = 0; j < 3; j++)
+			for(int k = j + 1; k < 4; k++)
+				for(int m = 0; m < 3; m++)
+					for(int n = m + 1; n < 4; n++)
+						for(int r = n + 1; r < 5; r++)
+							strength = Math.max(strength, reference.evaluate5(handCards[j] | handCards[k] |
+																			  tableCards[m] | tableCards[n] | tableCards[r]));
+		return strength;
+	}
+	
+	
+	private static long[] splitCards(long cards)
+	{
+		long[] split = new long[Long.bitCount(cards)];
+		for(int i = 0; i < split.length; i++)
+		{
+			split[i] = Long.lowestOneBit(cards);
+			cards &= cards - 1;
+		}
+		return split;
+	}
+	
+	
+	/**
+	 * Deals random tables of five cards with two omaha hands of four cards for each.
+	 */
+	private static void randomDeals(long[] tables, long[] hands)
+	{
+		Random random = new Random(2);
+		long[] deal = new long[13];
+		for(int i = 0; i < tables.length; i++)
+		{
+			long dealt = 0;
+			for(int j = 0; j < deal.length; j++)
+			{
+				int card;
+				do
+					card = random.nextInt(52);
+				while((dealt & 1L << (16 * (card / 13) + card % 13)) != 0);
+				deal[j] = 1L << (16 * (card / 13) + card % 13);
+				dealt |= deal[j];
+			}
+			tables[i] = deal[0] | deal[1] | deal[2] | deal[3] | deal[4];
+			if(2 * i < hands.length)
+				hands[2 * i] = deal[5] | deal[6] | deal[7] | deal[8];
+			if(2 * i + 1 < hands.length)
+				hands[2 * i + 1] = deal[9] | deal[10] | deal[11] | deal[12];
+		}
+	}
+	
+	
+	private static void check(int value, int expected, long hand, HandEvaluator evaluator)
+	{
+		if(value != expected)
+			throw new IllegalStateException(String.format("%s gives %d instead of %d for hand %x",
+														  evaluator.getClass().getSimpleName(), value, expected, hand));
+	}
+	
+	
+	private static long[] randomHands(int numberOfHands, int numberOfCards)
+	{
+		Random random = new Random(1);
+		long[] hands = new long[numberOfHands];
+		for(int i = 0; i < numberOfHands; i++)
+			while(Long.bitCount(hands[i]) < numberOfCards)
+			{
+				int card = random.nextInt(52);
+				hands[i] |= 1L << (16 * (card / 13) + card % 13);
+			}
+		return hands;
+	}
+}
@@ -0,0 +1,258 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.eval;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * Hand evaluator that looks up the value of a hand in precomputed tables, costing a few memory reads per hand.
+ * <p>
+ * Flushes are recognized per suit: with at most 7 cards only one suit can hold five or more of them, and then no
+ * full house or quads is possible, so the value only depends on the 13 bit rank mask of that suit. All other hands
+ * only depend on how many cards there are of each rank. Every rank gets a key such that the sum of the keys of any 5
+ * or 7 ranks (at most 4 of each) is unique, and these sums are mapped to the hand values with a perfect hash.
+ * <p>
+ * The tables are filled from com.stevebrecher.HandEval when the class is loaded, which takes a fraction of a second and
+ * about 1 MB of memory, and the values are exactly the same.
+ */
+public class LookupHandEvaluator implements HandEvaluator
+{
+	// key per rank, from deuce to ace
+	static final int[] RANK_KEYS = {0, 1, 5, 22, 98, 453, 2031, 8698, 22854, 83661, 262349, 636345, 1479181};
+	
+	static final int CARD_COUNT_SHIFT = 23;				// the number of cards is added above the largest key sum
+	static final int ROW_SHIFT = 10;					// perfect hash: the high bits of a key select a row offset
+	private static final int LARGE_ROW = 4;				// rows with more keys are placed one after the other
+	static final int COLUMN_MASK = (1 << ROW_SHIFT) - 1;
+	
+	static final int[] SUIT_KEYS = new int[0x2000];		// sum of the rank keys of a 13 bit rank mask
+	static final int[] FLUSH_VALUES = new int[0x2000];	// value of a flush in a rank mask with 5 to 7 ranks
+	static final int[] ROW_OFFSETS = new int[(8 << CARD_COUNT_SHIFT) >>> ROW_SHIFT];
+	static int[] rankValues;							// values of the hands without a flush, by rank key
+	
+	static
+	{
+		for(int mask = 1; mask < 0x2000; mask++)
+		{
+			int lowestRank = Integer.numberOfTrailingZeros(mask);
+			SUIT_KEYS[mask] = SUIT_KEYS[mask & (mask - 1)] + RANK_KEYS[lowestRank];
+			
+			// complete the flush with deuces of other suits to get 7 cards, these can never improve a flush
+			int numberOfRanks = Integer.bitCount(mask);
+			if(numberOfRanks >= 5 && numberOfRanks <= 7)
+				FLUSH_VALUES[mask] = HandEval.hand7Eval(mask | (numberOfRanks < 7 ? 1L << 16 : 0) |
+														(numberOfRanks < 6 ? 1L << 32 : 0));
+		}
+		
+		int[] keys = new int[60000];
+		int[] keyValues = new int[keys.length];
+		int numberOfKeys = addRankCombinations(5, keys, keyValues, 0);
+		numberOfKeys = addRankCombinations(7, keys, keyValues, numberOfKeys);
+		buildPerfectHash(Arrays.copyOf(keys, numberOfKeys), Arrays.copyOf(keyValues, numberOfKeys));
+	}
+	
+	
+	/**
+	 * Returns a VectorHandEvaluator when it was compiled and the jdk.incubator.vector module is available, or else a
+	 * LookupHandEvaluator. Both give the same values, the first evaluates batches of hands with vector instructions.
+	 */
+	public static HandEvaluator createBatchEvaluator()
+	{
+		try {
+			return (HandEvaluator) Class.forName("com.theaigames.game.texasHoldem.eval.VectorHandEvaluator")
+										.getDeclaredConstructor().newInstance();
+		} catch(Exception | LinkageError e) {
+			return new LookupHandEvaluator();
+		}
+	}
+	
+	
+	@Override
+	public int evaluate7(long cards)
+	{
+		final int c = (int) cards & 0x1FFF;
+		final int d = (int) (cards >>> 16) & 0x1FFF;
+		final int h = (int) (cards >>> 32) & 0x1FFF;
+		final int s = (int) (cards >>> 48) & 0x1FFF;
+		
+		if(Integer.bitCount(c) >= 5)
+			return FLUSH_VALUES[c];
+		if(Integer.bitCount(d) >= 5)
+			return FLUSH_VALUES[d];
+		if(Integer.bitCount(h) >= 5)
+			return FLUSH_VALUES[h];
+		if(Integer.bitCount(s) >= 5)
+			return FLUSH_VALUES[s];
+		return rankValue(SUIT_KEYS[c] + SUIT_KEYS[d] + SUIT_KEYS[h] + SUIT_KEYS[s], 7);
+	}
+	
+	
+	@Override
+	public int evaluate5(long cards)
+	{
+		final int c = (int) cards & 0x1FFF;
+		final int d = (int) (cards >>> 16) & 0x1FFF;
+		final int h = (int) (cards >>> 32) & 0x1FFF;
+		final int s = (int) (cards >>> 48) & 0x1FFF;
+		
+		// a 5 card flush has all its cards in one suit, so the other suits are empty
+		if(d == 0 && h == 0 && s == 0)
+			return FLUSH_VALUES[c];
+		if(c == 0 && h == 0 && s == 0)
+			return FLUSH_VALUES[d];
+		if(c == 0 && d == 0 && s == 0)
+			return FLUSH_VALUES[h];
+		if(c == 0 && d == 0 && h == 0)
+			return FLUSH_VALUES[s];
+		return rankValue(SUIT_KEYS[c] + SUIT_KEYS[d] + SUIT_KEYS[h] + SUIT_KEYS[s], 5);
+	}
+	
+	
+	@Override
+	public void evaluate7(long[] cards, int[] values, int count)
+	{
+		for(int i = 0; i < count; i++)
+			values[i] = evaluate7(cards[i]);
+	}
+	
+	
+	/**
+	 * Returns the value of a hand without a flush.
+	 * @param rankKey : the sum of the rank keys of all the cards.
+	 * @param numberOfCards : 5 or 7.
+	 */
+	static int rankValue(int rankKey, int numberOfCards)
+	{
+		int key = rankKey + (numberOfCards << CARD_COUNT_SHIFT);
+		return rankValues[ROW_OFFSETS[key >>> ROW_SHIFT] + (key & COLUMN_MASK)];
+	}
+	
+	
+	/**
+	 * Adds the keys and values of all combinations of the given number of cards, with at most 4 cards per rank, to the
+	 * given arrays. Returns the new number of keys.
+	 */
+	private static int addRankCombinations(int numberOfCards, int[] keys, int[] keyValues, int numberOfKeys)
+	{
+		return addRankCombinations(numberOfCards, 0, new int[13], keys, keyValues, numberOfKeys);
+	}
+	
+	
+	private static int addRankCombinations(int cardsLeft, int rank, int[] counts, int[] keys, int[] keyValues,
+										   int numberOfKeys)
+	{
+		if(rank == 13)
+		{
+			if(cardsLeft > 0)
+				return numberOfKeys;
+			
+			// deal the cards over the suits in turn, so that no suit gets more than two cards
+			long cards = 0;
+			int rankKey = 0, card = 0;
+			for(int i = 0; i < 13; i++)
+			{
+				rankKey += counts[i] * RANK_KEYS[i];
+				for(int j = 0; j < counts[i]; j++)
+					cards |= 1L << (16 * (card++ % 4) + i);
+			}
+			
+			keys[numberOfKeys] = rankKey + (card << CARD_COUNT_SHIFT);
+			keyValues[numberOfKeys++] = card == 5 ? HandEval.hand5Eval(cards) : HandEval.hand7Eval(cards);
+			return numberOfKeys;
+		}
+		
+		for(counts[rank] = 0; counts[rank] <= Math.min(4, cardsLeft); counts[rank]++)
+			numberOfKeys = addRankCombinations(cardsLeft - counts[rank], rank + 1, counts, keys, keyValues,
+											   numberOfKeys);
+		counts[rank] = 0;
+		return numberOfKeys;
+	}
+	
+	
+	/**
+	 * Builds a perfect hash for the given keys: the keys are divided in rows by their high bits, and every row gets an
+	 * offset in the value table such that the keys of all rows end up in different places. The rows with the most keys
+	 * are placed first, each one at the first offset after the previous large row where it fits. The small rows are
+	 * then put in the gaps, at the lowest offset where they fit. Searching the lowest offset for the large rows as well
+	 * gives a table that is a third smaller, but takes seconds.
+	 */
+	private static void buildPerfectHash(int[] keys, int[] keyValues)
+	{
+		int numberOfRows = ROW_OFFSETS.length;
+		int[] rowSizes = new int[numberOfRows];
+		for(int key : keys)
+			rowSizes[key >>> ROW_SHIFT]++;
+		
+		// sort the keys by row, and the rows by decreasing size
+		int[] rowStarts = new int[numberOfRows + 1];
+		for(int row = 0; row < numberOfRows; row++)
+			rowStarts[row + 1] = rowStarts[row] + rowSizes[row];
+		int[] keysByRow = new int[keys.length];
+		int[] fill = Arrays.copyOf(rowStarts, numberOfRows);
+		for(int i = 0; i < keys.length; i++)
+			keysByRow[fill[keys[i] >>> ROW_SHIFT]++] = i;
+		
+		long[] rowOrder = new long[numberOfRows];
+		for(int row = 0; row < numberOfRows; row++)
+			rowOrder[row] = ((long) (keys.length - rowSizes[row]) << 32) | row;
+		Arrays.sort(rowOrder);
+		
+		BitSet used = new BitSet();
+		int previousOffset = 0;
+		int[] table = new int[2 * keys.length];
+		for(long order : rowOrder)
+		{
+			int row = (int) order;
+			if(rowSizes[row] == 0)
+				break;
+			
+			// only try the offsets at which the first key of the row lands on a free place
+			int start = rowStarts[row], end = rowStarts[row + 1];
+			int firstColumn = keys[keysByRow[start]] & COLUMN_MASK;
+			int offset = rowSizes[row] > LARGE_ROW ? previousOffset : 0;
+			offset = used.nextClearBit(offset + firstColumn) - firstColumn;
+			while(!fits(keys, keysByRow, start, end, offset, used))
+				offset = used.nextClearBit(offset + 1 + firstColumn) - firstColumn;
+			
+			ROW_OFFSETS[row] = offset;
+			if(rowSizes[row] > LARGE_ROW)
+				previousOffset = offset;
+			for(int i = start; i < end; i++)
+			{
+				int index = offset + (keys[keysByRow[i]] & COLUMN_MASK);
+				if(index >= table.length)
+					table = Arrays.copyOf(table, 2 * index);
+				used.set(index);
+				table[index] = keyValues[keysByRow[i]];
+			}
+		}
+		rankValues = Arrays.copyOf(table, used.length());
+	}
+	
+	
+	private static boolean fits(int[] keys, int[] keysByRow, int start, int end, int offset, BitSet used)
+	{
+		for(int i = start; i < end; i++)
+			if(used.get(offset + (keys[keysByRow[i]] & COLUMN_MASK)))
+				return false;
+		return true;
+	}
+}
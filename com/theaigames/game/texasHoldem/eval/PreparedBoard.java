@@ -0,0 +1,218 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.eval;
+
+/**
+ * The five table cards of a hand, with everything that does not depend on the hand cards computed once: the rank
+ * masks per suit, the only suit in which a flush is possible, whether the table is paired and the rank keys of the
+ * table and of its three card subsets. The strength of a bot's hand then only needs its own two (hold'em) or four
+ * (omaha) hand cards to be added, which is much cheaper when several bots are evaluated on the same table. The
+ * values are the same as those of com.stevebrecher.HandEval.
+ * <p>
+ * - A flush needs at least three table cards of one suit, five table cards can have at most one such suit, and it is
+ *   only tried with the hand cards of that suit.
+ * - Without a pair on the table there is no full house or quads, so then nothing beats a flush and the other hands
+ *   are skipped.
+ * - All other hands, including straights, only depend on the ranks of the cards and are looked up in the rank tables
+ *   of LookupHandEvaluator, with one addition per hand (hold'em) or per combination of distinct ranks (omaha).
+ * <p>
+ * The engine only uses it for omaha. For hold'em, evaluateHoldem(long) measures slower than evaluate7 of
+ * LookupHandEvaluator, so hold'em hands go through the configured HandEvaluator instead.
+ * <p>
+ * A PreparedBoard can be reused for the next table with prepare(long), so it must not be shared between threads.
+ */
+public class PreparedBoard
+{
+	private static final int BOARD_SIZE = 5;
+	private static final int OMAHA_HAND_SIZE = 4;
+	
+	private long tableCards;							// the prepared table cards, 0 if none yet
+	private int[] suitMasks = new int[4];				// rank mask of the table cards per suit
+	private int flushSuit;								// suit with at least three table cards, or -1
+	private boolean isPaired;							// whether a full house or quads is possible
+	private int rankKey;								// sum of the rank keys of the table cards
+	
+	// three card subsets of the table, only computed once an omaha hand is evaluated
+	private int[] cardKeys = new int[BOARD_SIZE];		// rank key per table card
+	private boolean hasTriples;
+	private int[] tripleKeys = new int[10];				// distinct rank keys of the subsets
+	private int numberOfTripleKeys;
+	private int[] flushTriples = new int[10];			// rank masks of the subsets in the flush suit
+	private int numberOfFlushTriples;
+	
+	private int[] holeKeys = new int[OMAHA_HAND_SIZE];
+	private int[] pairKeys = new int[6];
+	
+	/**
+	 * Prepares the given table cards.
+	 * @param cards : the five table cards, with one bit set per card as returned by Card.getNumber().
+	 */
+	public void prepare(long cards)
+	{
+		tableCards = cards;
+		
+		flushSuit = -1;
+		rankKey = 0;
+		int rankMask = 0;
+		for(int suit = 0; suit < 4; suit++)
+		{
+			suitMasks[suit] = (int) (cards >>> (16 * suit)) & 0x1FFF;
+			if(Integer.bitCount(suitMasks[suit]) >= 3)
+				flushSuit = suit;
+			rankKey += LookupHandEvaluator.SUIT_KEYS[suitMasks[suit]];
+			rankMask |= suitMasks[suit];
+		}
+		isPaired = Integer.bitCount(rankMask) < BOARD_SIZE;
+		hasTriples = false;
+	}
+	
+	
+	/**
+	 * Returns the prepared table cards.
+	 */
+	public long getTableCards()
+	{
+		return tableCards;
+	}
+	
+	
+	/**
+	 * Returns the value of the best hold'em hand, out of the two hand cards and the five table cards.
+	 * @param holeCards : the two hand cards, with one bit set per card.
+	 */
+	public int evaluateHoldem(long holeCards)
+	{
+		int flushValue = 0;
+		if(flushSuit >= 0)
+		{
+			int suitCards = suitMasks[flushSuit] | (int) (holeCards >>> (16 * flushSuit)) & 0x1FFF;
+			if(Integer.bitCount(suitCards) >= 5)
+				flushValue = LookupHandEvaluator.FLUSH_VALUES[suitCards];
+			if(flushValue > 0 && !isPaired)
+				return flushValue;
+		}
+		
+		int first = Long.numberOfTrailingZeros(holeCards) & 15;
+		int second = Long.numberOfTrailingZeros(holeCards & (holeCards - 1)) & 15;
+		int key = rankKey + LookupHandEvaluator.RANK_KEYS[first] + LookupHandEvaluator.RANK_KEYS[second];
+		return Math.max(flushValue, LookupHandEvaluator.rankValue(key, 7));
+	}
+	
+	
+	/**
+	 * Returns the value of the best omaha hand, with exactly two of the four hand cards and three of the five table
+	 * cards. This is the same as the best HandEval.hand5Eval value of all 60 combinations.
+	 * @param holeCards : the four hand cards, with one bit set per card.
+	 */
+	public int evaluateOmaha(long holeCards)
+	{
+		if(!hasTriples)
+			prepareTriples();
+		
+		int flushValue = 0;
+		if(flushSuit >= 0)
+		{
+			int suitCards = (int) (holeCards >>> (16 * flushSuit)) & 0x1FFF;
+			if(Integer.bitCount(suitCards) >= 2)
+				flushValue = bestOmahaFlush(suitCards);
+			if(flushValue > 0 && !isPaired)
+				return flushValue;
+		}
+		
+		// the rank keys of all distinct pairs of hand cards
+		long cards = holeCards;
+		for(int i = 0; i < OMAHA_HAND_SIZE; i++)
+		{
+			holeKeys[i] = LookupHandEvaluator.RANK_KEYS[Long.numberOfTrailingZeros(cards) & 15];
+			cards &= cards - 1;
+		}
+		int numberOfPairKeys = 0;
+		for(int i = 0; i < OMAHA_HAND_SIZE - 1; i++)
+			for(int j = i + 1; j < OMAHA_HAND_SIZE; j++)
+				numberOfPairKeys = addDistinct(pairKeys, numberOfPairKeys, holeKeys[i] + holeKeys[j]);
+		
+		int value = flushValue;
+		for(int i = 0; i < numberOfPairKeys; i++)
+			for(int j = 0; j < numberOfTripleKeys; j++)
+				value = Math.max(value, LookupHandEvaluator.rankValue(pairKeys[i] + tripleKeys[j], 5));
+		return value;
+	}
+	
+	
+	/**
+	 * Computes the rank keys of the three card subsets of the table, and their rank masks in the flush suit.
+	 */
+	private void prepareTriples()
+	{
+		long cards = tableCards;
+		for(int i = 0; i < BOARD_SIZE; i++)
+		{
+			cardKeys[i] = LookupHandEvaluator.RANK_KEYS[Long.numberOfTrailingZeros(cards) & 15];
+			cards &= cards - 1;
+		}
+		
+		numberOfTripleKeys = 0;
+		for(int m = 0; m < BOARD_SIZE - 2; m++)
+			for(int n = m + 1; n < BOARD_SIZE - 1; n++)
+				for(int r = n + 1; r < BOARD_SIZE; r++)
+					numberOfTripleKeys = addDistinct(tripleKeys, numberOfTripleKeys,
+													 cardKeys[m] + cardKeys[n] + cardKeys[r]);
+		
+		numberOfFlushTriples = 0;
+		if(flushSuit >= 0)
+		{
+			int suitCards = suitMasks[flushSuit];
+			for(int m = suitCards; m != 0; m &= m - 1)
+				for(int n = m & (m - 1); n != 0; n &= n - 1)
+					for(int r = n & (n - 1); r != 0; r &= r - 1)
+						flushTriples[numberOfFlushTriples++] = Integer.lowestOneBit(m) | Integer.lowestOneBit(n) |
+															   Integer.lowestOneBit(r);
+		}
+		hasTriples = true;
+	}
+	
+	
+	/**
+	 * Returns the value of the best omaha flush with two of the given hand cards of the flush suit.
+	 */
+	private int bestOmahaFlush(int suitCards)
+	{
+		int value = 0;
+		for(int m = suitCards; m != 0; m &= m - 1)
+			for(int n = m & (m - 1); n != 0; n &= n - 1)
+			{
+				int pair = Integer.lowestOneBit(m) | Integer.lowestOneBit(n);
+				for(int i = 0; i < numberOfFlushTriples; i++)
+					value = Math.max(value, LookupHandEvaluator.FLUSH_VALUES[pair | flushTriples[i]]);
+			}
+		return value;
+	}
+	
+	
+	/**
+	 * Adds the key to the first 'size' keys if it is not one of them yet and returns the new size.
+	 */
+	private static int addDistinct(int[] keys, int size, int key)
+	{
+		for(int i = 0; i < size; i++)
+			if(keys[i] == key)
+				return size;
+		keys[size] = key;
+		return size + 1;
+	}
+}
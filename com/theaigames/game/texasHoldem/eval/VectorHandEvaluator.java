@@ -0,0 +1,92 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.eval;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * LookupHandEvaluator that evaluates batches of 7-card hands with the incubating vector API of the JDK: all table
+ * lookups are done as gathers for as many hands at once as the hardware vectors have int lanes.
+ * <p>
+ * This class needs the jdk.incubator.vector module both to compile and to run ('--add-modules jdk.incubator.vector'),
+ * so the default build leaves it out. It is never referenced directly, use LookupHandEvaluator.createBatchEvaluator()
+ * to get an instance when it is present, or a plain LookupHandEvaluator otherwise. The batches use scratch arrays of
+ * the instance, so it must not be shared between threads.
+ */
+public class VectorHandEvaluator extends LookupHandEvaluator
+{
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	private static final int SEVEN_CARDS = 7 << CARD_COUNT_SHIFT;
+	
+	// scratch arrays of the batches, grown when a larger batch comes in
+	private int[] suits0 = new int[0];
+	private int[] suits1 = new int[0];
+	private int[] suits2 = new int[0];
+	private int[] suits3 = new int[0];
+	private int[] indices = new int[SPECIES.length()];
+	
+	@Override
+	public void evaluate7(long[] cards, int[] values, int count)
+	{
+		if(suits0.length < count)
+		{
+			suits0 = new int[count];
+			suits1 = new int[count];
+			suits2 = new int[count];
+			suits3 = new int[count];
+		}
+		
+		// split the hands in their suits first, the suit masks are the indices of the gathers
+		for(int i = 0; i < count; i++)
+		{
+			suits0[i] = (int) cards[i] & 0x1FFF;
+			suits1[i] = (int) (cards[i] >>> 16) & 0x1FFF;
+			suits2[i] = (int) (cards[i] >>> 32) & 0x1FFF;
+			suits3[i] = (int) (cards[i] >>> 48) & 0x1FFF;
+		}
+		
+		int vectorCount = SPECIES.loopBound(count);
+		for(int i = 0; i < vectorCount; i += SPECIES.length())
+		{
+			// at most one suit can have a flush, the flush value of the others is 0
+			IntVector flush = IntVector.fromArray(SPECIES, FLUSH_VALUES, 0, suits0, i)
+									   .max(IntVector.fromArray(SPECIES, FLUSH_VALUES, 0, suits1, i))
+									   .max(IntVector.fromArray(SPECIES, FLUSH_VALUES, 0, suits2, i))
+									   .max(IntVector.fromArray(SPECIES, FLUSH_VALUES, 0, suits3, i));
+			
+			// the rank key of any 7 cards is in the perfect hash, also when they form a flush
+			IntVector key = IntVector.fromArray(SPECIES, SUIT_KEYS, 0, suits0, i)
+									 .add(IntVector.fromArray(SPECIES, SUIT_KEYS, 0, suits1, i))
+									 .add(IntVector.fromArray(SPECIES, SUIT_KEYS, 0, suits2, i))
+									 .add(IntVector.fromArray(SPECIES, SUIT_KEYS, 0, suits3, i))
+									 .add(SEVEN_CARDS);
+			key.lanewise(VectorOperators.LSHR, ROW_SHIFT).intoArray(indices, 0);
+			IntVector.fromArray(SPECIES, ROW_OFFSETS, 0, indices, 0).add(key.and(COLUMN_MASK)).intoArray(indices, 0);
+			IntVector value = IntVector.fromArray(SPECIES, rankValues, 0, indices, 0);
+			
+			VectorMask<Integer> isFlush = flush.compare(VectorOperators.NE, 0);
+			value.blend(flush, isFlush).intoArray(values, i);
+		}
+		
+		for(int i = vectorCount; i < count; i++)
+			values[i] = evaluate7(cards[i]);
+	}
+}
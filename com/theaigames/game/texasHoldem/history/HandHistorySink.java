@@ -0,0 +1,42 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.history;
+
+/**
+ * Receives the hand history of a match. The MatchPlayer writes the history of every finished hand to its sink, so
+ * that the history can be kept in memory for small matches or streamed to a file for long ones.
+ */
+public interface HandHistorySink
+{
+	/**
+	 * Appends a part of the hand history.
+	 * @param history : the text to append
+	 */
+	public void write(CharSequence history);
+	
+	/**
+	 * Returns the complete history written so far, or null if this sink does not keep the history in memory.
+	 */
+	public String getHistory();
+	
+	/**
+	 * Writes out everything that is still buffered and releases the resources of the sink. Nothing can be written
+	 * after the sink is closed.
+	 */
+	public void close();
+}
@@ -0,0 +1,104 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.history;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the hand history through a buffer to a file, an output stream or a writer, so that the history does not
+ * have to fit in memory. The history is not kept, so getHistory returns null. When writing fails, the failure is
+ * reported once and the rest of the history is dropped.
+ */
+public class StreamHandHistorySink implements HandHistorySink
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private Writer writer;
+	private IOException failure;		// first failed write, nothing is written after it
+	
+	/**
+	 * Creates a sink that writes the history to the given stream. The stream is closed when the sink is closed.
+	 * @param stream : the stream to write the history to
+	 */
+	public StreamHandHistorySink(OutputStream stream)
+	{
+		writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a sink that writes the history to the given writer without extra buffering, for example a
+	 * ChunkedFileWriter that writes in the background. The writer is closed when the sink is closed.
+	 * @param writer : the writer to write the history to
+	 */
+	public StreamHandHistorySink(Writer writer)
+	{
+		this.writer = writer;
+	}
+	
+	
+	/**
+	 * Creates a sink that writes the history to the given file, replacing its content.
+	 * @param file : the file to write the history to
+	 */
+	public StreamHandHistorySink(File file) throws IOException
+	{
+		this(new FileOutputStream(file));
+	}
+	
+	
+	@Override
+	public void write(CharSequence history)
+	{
+		if(failure != null)
+			return;
+		try {
+			writer.append(history);
+		} catch(IOException e) {
+			failure = e;
+			System.err.println("Writing the hand history failed, the rest of the history is dropped");
+			e.printStackTrace();
+		}
+	}
+	
+	
+	@Override
+	public String getHistory()
+	{
+		return null;
+	}
+	
+	
+	@Override
+	public void close()
+	{
+		try {
+			writer.close();
+		} catch(IOException e) {
+			if(failure == null)
+				e.printStackTrace();
+		}
+	}
+}
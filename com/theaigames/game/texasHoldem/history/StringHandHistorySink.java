@@ -0,0 +1,52 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.history;
+
+/**
+ * Keeps the hand history in memory in a StringBuilder, so that appending a hand only copies that hand. Suitable for
+ * matches that are small enough to keep their whole history on the heap.
+ */
+public class StringHandHistorySink implements HandHistorySink
+{
+	private StringBuilder history;
+	
+	public StringHandHistorySink()
+	{
+		history = new StringBuilder();
+	}
+	
+	
+	@Override
+	public void write(CharSequence part)
+	{
+		history.append(part);
+	}
+	
+	
+	@Override
+	public String getHistory()
+	{
+		return history.toString();
+	}
+	
+	
+	@Override
+	public void close()
+	{
+	}
+}
@@ -20,6 +20,7 @@ package com.theaigames.game.texasHoldem.match;
 import java.util.ArrayList;
 
 import com.theaigames.game.texasHoldem.Player;
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
 
 public class MatchInfo
 {
@@ -70,20 +71,30 @@ public class MatchInfo
 	 */
 	public String toString()
 	{
-		String str = "";
+		return appendTo(new ProtocolWriter()).toString().trim();
+	}
+	
+	
+	/**
+	 * Writes the same information as toString() as lines for the bots.
+	 * @param writer : the writer to add the lines to
+	 * @return : the given writer
+	 */
+	public ProtocolWriter appendTo(ProtocolWriter writer)
+	{
 		if(infoType.equals(MatchInfoType.FIRST_TABLE))
 		{
 //			str += String.format("Settings timeBank %d\n", timeBank);
 //			str += String.format("Settings timePerMove %d\n", timePerMove);
 			if(isTournament)
 			{
-				str += String.format("Settings hands_per_level %d\n", handsPerLevel);
-				str += String.format("Settings starting_stack %d\n", startingStack);
+				writer.settings("hands_per_level", handsPerLevel);
+				writer.settings("starting_stack", startingStack);
 			}
 			else
 			{
-				str += String.format("Settings small_blind %d\n", sizeSB);
-				str += String.format("Settings big_blind %d\n", sizeBB);
+				writer.settings("small_blind", sizeSB);
+				writer.settings("big_blind", sizeBB);
 			}
 //			str += String.format("Settings your_bot %s\n", botCodeNames[mySeat]);
 		}
@@ -108,7 +119,6 @@ public class MatchInfo
 //		for(int i = 0; i < bots.size(); i++)
 //			str += String.format("%s seat %d\n", botCodeNames[i], i);
 		
-		str = str.trim();
-		return str;
+		return writer;
 	}
 }
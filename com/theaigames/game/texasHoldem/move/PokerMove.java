@@ -17,6 +17,8 @@
 
 package com.theaigames.game.texasHoldem.move;
 
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
+
 /**
  * Class that represents the action of a bot.
  */
@@ -63,8 +65,16 @@ public class PokerMove {
 	 * string and the action amount.
 	 */
 	public String toString() {
-		return (player != null) ? String.format("%s %s %d", player, action, amount) :
-			String.format("_unknown_ %s %d", action, amount);
+		return appendTo(new ProtocolWriter()).toString().trim();
+	}
+	
+	/**
+	 * Writes the same sentence as toString() as a line for the bots.
+	 * @param writer : the writer to add the line to
+	 * @return : the given writer
+	 */
+	public ProtocolWriter appendTo(ProtocolWriter writer) {
+		return writer.move(player != null ? player : "_unknown_", action, amount);
 	}
 	
 }
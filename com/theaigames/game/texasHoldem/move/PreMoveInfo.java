@@ -17,6 +17,8 @@
 
 package com.theaigames.game.texasHoldem.move;
 
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
+
 public class PreMoveInfo
 {
 	private int maxWinPot;
@@ -33,11 +35,16 @@ public class PreMoveInfo
 	 */
 	public String toString()
 	{
-		String str = "";
-		
-		str += String.format("Match maxWinPot %d\n", maxWinPot);		
-		str += String.format("Match amountToCall %d", amountToCall);
-		
-		return str;
+		return appendTo(new ProtocolWriter()).toString().trim();
+	}
+	
+	/**
+	 * Writes the same information as toString() as lines for the bot.
+	 * @param writer : the writer to add the lines to
+	 * @return : the given writer
+	 */
+	public ProtocolWriter appendTo(ProtocolWriter writer)
+	{
+		return writer.match("maxWinPot", maxWinPot).match("amountToCall", amountToCall);
 	}
 }
@@ -0,0 +1,388 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.odds;
+
+import java.util.List;
+import java.util.Random;
+
+import com.theaigames.game.texasHoldem.eval.DefaultHandEvaluator;
+import com.theaigames.game.texasHoldem.eval.HandEvaluator;
+import com.theaigames.game.texasHoldem.eval.PreparedBoard;
+import com.theaigames.game.texasHoldem.table.cards.Card;
+import com.theaigames.game.texasHoldem.table.hand.Hand;
+
+/**
+ * Class that computes the winning chances of the bots that are still involved in a hand. The cheapest method is
+ * picked per street: when at most two table cards are still to come, all possible run-outs are enumerated, which is
+ * exact and costs at most a thousand evaluations per bot. Preflop the odds of two hold'em hands are looked up in a
+ * precomputed table when one is set, otherwise random run-outs are sampled until the standard error of every bot's
+ * chance is below a target, or the maximum number of run-outs is reached. The run-outs are evaluated in batches, see
+ * BoardBatch.
+ */
+public class EquityCalculator
+{
+	private static final int BOARD_SIZE = 5;
+	private static final int MAX_ENUMERATED_CARDS = 2;		// enumerate all run-outs if at most this many cards are missing
+	private static final int BATCH_SIZE = 1024;				// number of boards per call to the hand evaluator
+	private static final int MIN_SAMPLES = 100;				// sampled run-outs before the error is checked the first time
+	private static final int ERROR_CHECK_INTERVAL = 100;	// sampled run-outs between checks of the error
+	
+	private int sampleRuns;									// maximum number of random run-outs when sampling is needed
+	private double targetError;								// sampling stops at this standard error, 0 to never stop
+	private boolean isOmaha;								// whether hands are evaluated with omaha rules
+	private PreflopEquityTable preflopTable;				// exact heads-up preflop odds, can be null
+	private HandEvaluator handEvaluator;					// computes the strength of the hands on complete boards
+	private PreparedBoard preparedBoard;					// one board at a time, for omaha
+	private BoardBatch batch;
+	private Random random;
+	
+	/**
+	 * Creates an equity calculator. Until setSampling is called, the given number of run-outs is always sampled.
+	 * @param runs : the number of random run-outs that is used on streets that are not enumerated.
+	 * @param omaha : whether the hands are omaha hands, so exactly two hand cards must be used.
+	 */
+	public EquityCalculator(int runs, boolean omaha)
+	{
+		sampleRuns = runs;
+		isOmaha = omaha;
+		handEvaluator = new DefaultHandEvaluator();
+		preparedBoard = new PreparedBoard();
+		batch = new BoardBatch();
+		random = new Random();
+	}
+	
+	
+	/**
+	 * Sets the table with the exact preflop odds, used when exactly two hold'em hands are dealt.
+	 * @param table : the table to use, or null to always sample preflop.
+	 */
+	public void setPreflopTable(PreflopEquityTable table)
+	{
+		preflopTable = table;
+	}
+	
+	
+	/**
+	 * Sets when the sampling of random run-outs stops: as soon as the standard error of the winning chance of every
+	 * involved bot is at most the target error, which is checked every hundred run-outs, or when the maximum number of
+	 * run-outs is reached.
+	 * @param error : the target standard error as a fraction, for example 0.01 for one percentage point, or 0 to
+	 * always sample the maximum number of run-outs.
+	 * @param maxRuns : the maximum number of random run-outs.
+	 */
+	public void setSampling(double error, int maxRuns)
+	{
+		targetError = error;
+		sampleRuns = maxRuns;
+	}
+	
+	
+	/**
+	 * Sets the evaluator that computes the strength of hold'em hands, by default a DefaultHandEvaluator is used.
+	 * @param evaluator : the hand evaluator to use.
+	 */
+	public void setHandEvaluator(HandEvaluator evaluator)
+	{
+		handEvaluator = evaluator;
+	}
+	
+	
+	/**
+	 * Computes the winning chance per bot as percentages multiplied with 10, for example 29.0% is returned as 290. A
+	 * bot wins a run-out when no other involved bot has a stronger hand, so ties count as a win for all tied bots and
+	 * the chances are normalized over the total number of wins. Bots that are not involved get a chance of 0.
+	 * @param hands : the hand cards per seat.
+	 * @param involved : which seats are still involved in the hand.
+	 * @param tableCards : the cards that are on the table.
+	 * @param stubCards : the numbers of the cards that are still in the deck.
+	 */
+	public int[] computeOdds(Hand[] hands, boolean[] involved, List<Card> tableCards, int[] stubCards)
+	{
+		return computeEquity(hands, involved, tableCards, stubCards).getOdds();
+	}
+	
+	
+	/**
+	 * Computes the winning chance per bot like computeOdds, and returns it together with the number of evaluated
+	 * run-outs and the standard error of the chances.
+	 * @param hands : the hand cards per seat.
+	 * @param involved : which seats are still involved in the hand.
+	 * @param tableCards : the cards that are on the table.
+	 * @param stubCards : the numbers of the cards that are still in the deck.
+	 */
+	public EquityResult computeEquity(Hand[] hands, boolean[] involved, List<Card> tableCards, int[] stubCards)
+	{
+		int numberOfSeats = hands.length;
+		long[][] holeCards = new long[numberOfSeats][];
+		long[] handCodes = new long[numberOfSeats];
+		for(int i = 0; i < numberOfSeats; i++)
+		{
+			if(involved[i])
+			{
+				holeCards[i] = new long[hands[i].getNumberOfCards()];
+				for(int j = 0; j < holeCards[i].length; j++)
+				{
+					holeCards[i][j] = hands[i].getCard(j).getNumber();
+					handCodes[i] |= holeCards[i][j];
+				}
+			}
+		}
+		
+		long boardCode = 0l;
+		int boardSize = tableCards.size();
+		for(int i = 0; i < boardSize; i++)
+			boardCode |= tableCards.get(i).getNumber();
+		
+		long[] stub = new long[stubCards.length];
+		for(int i = 0; i < stubCards.length; i++)
+			stub[i] = Card.of(stubCards[i]).getNumber();
+		
+		int[] winsPerBot = new int[numberOfSeats];
+		batch.start(handCodes, involved, winsPerBot);
+		int missingCards = BOARD_SIZE - boardSize;
+		int numberOfInvolved = numberOfInvolved(involved);
+		int samples = 0;
+		if(numberOfInvolved < 2)
+		{
+			// nothing to compute, the only remaining bot wins every run-out
+			for(int i = 0; i < numberOfSeats; i++)
+				if(involved[i])
+					winsPerBot[i]++;
+		}
+		else if(boardSize == 0 && !isOmaha && preflopTable != null && numberOfInvolved == 2 &&
+				stubCards.length == 52 - 4)
+		{
+			// heads-up preflop without any other dealt cards, the exact odds are in the table
+			return new EquityResult(lookupPreflopOdds(holeCards, involved), 0, 0);
+		}
+		else if(missingCards == 0)
+		{
+			batch.add(boardCode);
+			samples = 1;
+		}
+		else if(missingCards == 1)
+		{
+			for(int i = 0; i < stub.length; i++)
+				batch.add(boardCode | stub[i]);
+			samples = stub.length;
+		}
+		else if(missingCards == MAX_ENUMERATED_CARDS)
+		{
+			for(int i = 0; i < stub.length - 1; i++)
+				for(int j = i + 1; j < stub.length; j++)
+					batch.add(boardCode | stub[i] | stub[j]);
+			samples = stub.length * (stub.length - 1) / 2;
+		}
+		else
+		{
+			// draw the missing table cards with a partial shuffle of the stub, only the drawn positions are shuffled
+			while(samples < sampleRuns)
+			{
+				long board = boardCode;
+				for(int i = 0; i < missingCards; i++)
+				{
+					int last = stub.length - 1 - i;
+					int pick = random.nextInt(last + 1);
+					long card = stub[pick];
+					stub[pick] = stub[last];
+					stub[last] = card;
+					board |= card;
+				}
+				batch.add(board);
+				samples++;
+				
+				if(targetError > 0 && samples >= MIN_SAMPLES && samples % ERROR_CHECK_INTERVAL == 0)
+				{
+					batch.evaluate();
+					if(standardError(winsPerBot, involved, samples) <= targetError)
+						break;
+				}
+			}
+		}
+		batch.evaluate();
+		
+		// enumerated run-outs are exact
+		double standardError = 0;
+		if(missingCards > MAX_ENUMERATED_CARDS && samples > 0)
+			standardError = standardError(winsPerBot, involved, samples);
+		return new EquityResult(toPerMille(winsPerBot, involved), samples, standardError);
+	}
+	
+	
+	/**
+	 * Returns the odds of the two involved hands from the preflop table.
+	 */
+	private int[] lookupPreflopOdds(long[][] holeCards, boolean[] involved)
+	{
+		int first = -1, second = -1;
+		for(int i = 0; i < holeCards.length; i++)
+		{
+			if(involved[i])
+			{
+				if(first < 0)
+					first = i;
+				else
+					second = i;
+			}
+		}
+		
+		int[] tableOdds = preflopTable.getOdds(holeCards[first], holeCards[second]);
+		int[] odds = new int[holeCards.length];
+		odds[first] = tableOdds[0];
+		odds[second] = tableOdds[1];
+		return odds;
+	}
+	
+	
+	/**
+	 * Complete boards that are collected and evaluated together. The strength of each hold'em hand is computed for a
+	 * whole batch of boards in one call to the hand evaluator. For omaha each board is prepared once and only the hand
+	 * cards of every bot are added to it. The arrays are kept for the next computation.
+	 */
+	private class BoardBatch
+	{
+		private long[] handCodes;						// hand cards per seat
+		private boolean[] involved;
+		private int[] winsPerBot;						// receives the number of boards won by each seat
+		private long[] boards = new long[BATCH_SIZE];
+		private int numberOfBoards;
+		private long[] cards = new long[BATCH_SIZE];	// hand and table cards of one seat on every board
+		private int[][] strengths = new int[0][];		// strength per seat and board
+		private int[] boardStrengths = new int[0];		// strength per seat on one board
+		
+		/**
+		 * Starts a new computation, with an empty batch.
+		 */
+		private void start(long[] handCodes, boolean[] involved, int[] winsPerBot)
+		{
+			this.handCodes = handCodes;
+			this.involved = involved;
+			this.winsPerBot = winsPerBot;
+			numberOfBoards = 0;
+			if(strengths.length < handCodes.length)
+			{
+				strengths = new int[handCodes.length][BATCH_SIZE];
+				boardStrengths = new int[handCodes.length];
+			}
+		}
+		
+		
+		/**
+		 * Adds a board of five table cards, the batch is evaluated when it is full.
+		 */
+		private void add(long board)
+		{
+			boards[numberOfBoards++] = board;
+			if(numberOfBoards == BATCH_SIZE)
+				evaluate();
+		}
+		
+		
+		/**
+		 * Evaluates all involved hands on the boards of the batch, increments the win count of the bot(s) with the
+		 * strongest hand per board and empties the batch.
+		 */
+		private void evaluate()
+		{
+			int numberOfSeats = handCodes.length;
+			if(!isOmaha)
+			{
+				for(int i = 0; i < numberOfSeats; i++)
+				{
+					if(involved[i])
+					{
+						for(int k = 0; k < numberOfBoards; k++)
+							cards[k] = handCodes[i] | boards[k];
+						handEvaluator.evaluate7(cards, strengths[i], numberOfBoards);
+					}
+				}
+			}
+			
+			for(int k = 0; k < numberOfBoards; k++)
+			{
+				if(isOmaha)
+					preparedBoard.prepare(boards[k]);
+				
+				int maxStrength = -1;
+				for(int i = 0; i < numberOfSeats; i++)
+				{
+					if(involved[i])
+					{
+						if(isOmaha)
+							boardStrengths[i] = preparedBoard.evaluateOmaha(handCodes[i]);
+						else
+							boardStrengths[i] = strengths[i][k];
+						if(boardStrengths[i] > maxStrength)
+							maxStrength = boardStrengths[i];
+					}
+				}
+				for(int i = 0; i < numberOfSeats; i++)
+					if(involved[i] && boardStrengths[i] == maxStrength)
+						winsPerBot[i]++;
+			}
+			numberOfBoards = 0;
+		}
+	}
+	
+	
+	/**
+	 * Normalizes the win counts over the total number of wins and returns them as percentages multiplied with 10.
+	 */
+	private static int[] toPerMille(int[] winsPerBot, boolean[] involved)
+	{
+		long sum = 0;
+		for(int i = 0; i < winsPerBot.length; i++)
+			if(involved[i])
+				sum += winsPerBot[i];
+		
+		int[] odds = new int[winsPerBot.length];
+		for(int i = 0; i < winsPerBot.length; i++)
+			if(involved[i] && sum > 0)
+				odds[i] = (int) Math.round(1000*winsPerBot[i] / (sum + .0));
+		return odds;
+	}
+	
+	
+	/**
+	 * Returns the largest standard error of the win rate of an involved bot after the given number of run-outs. One
+	 * win and one loss are added to the counts, so that a bot that did not win or lose yet still has an error.
+	 */
+	private static double standardError(int[] winsPerBot, boolean[] involved, int samples)
+	{
+		double maxError = 0;
+		for(int i = 0; i < winsPerBot.length; i++)
+		{
+			if(involved[i])
+			{
+				double winRate = (winsPerBot[i] + 1) / (samples + 2.0);
+				maxError = Math.max(maxError, Math.sqrt(winRate * (1 - winRate) / samples));
+			}
+		}
+		return maxError;
+	}
+	
+	
+	private static int numberOfInvolved(boolean[] involved)
+	{
+		int count = 0;
+		for(int i = 0; i < involved.length; i++)
+			if(involved[i])
+				count++;
+		return count;
+	}
+}
@@ -0,0 +1,69 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.odds;
+
+/**
+ * The winning chances of the bots in a hand, together with the number of run-outs they are based on and the standard
+ * error of the estimate. Enumerated and looked up odds are exact and have a standard error of 0.
+ */
+public class EquityResult
+{
+	private int[] odds;
+	private int samples;
+	private double standardError;
+	
+	public EquityResult(int[] odds, int samples, double standardError)
+	{
+		this.odds = odds;
+		this.samples = samples;
+		this.standardError = standardError;
+	}
+	
+	/**
+	 * Returns the winning chance per seat as percentages multiplied with 10, 0 for seats that are not involved.
+	 */
+	public int[] getOdds()
+	{
+		return odds;
+	}
+	
+	/**
+	 * Returns the number of run-outs that were evaluated, or 0 if the odds were looked up in a table.
+	 */
+	public int getSamples()
+	{
+		return samples;
+	}
+	
+	/**
+	 * Returns the largest standard error of the winning chance of an involved seat, as a fraction (0.01 is one
+	 * percentage point).
+	 */
+	public double getStandardError()
+	{
+		return standardError;
+	}
+	
+	/**
+	 * Returns a String representation of the sample count and the error bound.
+	 */
+	public String toString()
+	{
+		return String.format("%d samples, standard error %.2f%%", samples, 100*standardError);
+	}
+}
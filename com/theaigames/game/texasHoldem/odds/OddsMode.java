@@ -0,0 +1,28 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.odds;
+
+/**
+ * When the winning chances of the bots for the hand history are computed. OFF leaves the odds out of the history,
+ * LAZY leaves them out as well but keeps the cards of the odds updates of recent hands, so that the odds of a single
+ * hand can be computed when they are asked for, and EAGER computes them in the background while the hand is played.
+ */
+public enum OddsMode
+{
+	OFF, LAZY, EAGER;
+}
@@ -0,0 +1,213 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.odds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Table with the exact preflop odds of every heads-up matchup of two hold'em hands. The 169 starting hand classes
+ * alone do not determine the odds exactly, since shared suits change the flush chances, so the table is indexed by
+ * the matchup up to a permutation of the suits, which leaves 47008 distinct matchups. The table is built offline by
+ * PreflopEquityTableGenerator and shipped as the gzipped binary resource 'preflop_headsup.bin' next to this class.
+ * <p>
+ * The odds are stored the same way as the odds in the hand history: as percentages multiplied with 10, where a tie
+ * counts as a win for both hands.
+ */
+public class PreflopEquityTable
+{
+	public static final String RESOURCE_NAME = "preflop_headsup.bin";
+	public static final int NUMBER_OF_MATCHUPS = 47008;
+	
+	private static final int MAGIC = 0x48555046;		// "HUPF"
+	private static final int VERSION = 1;
+	private static final int[][] SUIT_PERMUTATIONS = createSuitPermutations();
+	
+	private static PreflopEquityTable defaultTable;
+	private static boolean defaultTableLoaded;
+	
+	private int[] matchupKeys;			// sorted canonical keys of all matchups
+	private short[] firstOdds;			// odds of the first hand of the canonical matchup
+	private short[] secondOdds;			// odds of the second hand of the canonical matchup
+	
+	
+	PreflopEquityTable(int[] keys, short[] first, short[] second)
+	{
+		matchupKeys = keys;
+		firstOdds = first;
+		secondOdds = second;
+	}
+	
+	
+	/**
+	 * Returns the table that is shipped as a resource, it is loaded the first time this method is called. Returns
+	 * null if the resource is missing or invalid, callers should then fall back to computing the odds.
+	 */
+	public static synchronized PreflopEquityTable getDefault()
+	{
+		if(!defaultTableLoaded)
+		{
+			defaultTableLoaded = true;
+			InputStream stream = PreflopEquityTable.class.getResourceAsStream(RESOURCE_NAME);
+			if(stream == null)
+				System.err.println("PreflopEquityTable: resource " + RESOURCE_NAME + " not found, preflop odds are sampled");
+			else
+			{
+				try {
+					defaultTable = read(stream);
+				} catch(IOException e) {
+					System.err.println("PreflopEquityTable: failed reading " + RESOURCE_NAME + ", preflop odds are sampled: " + e);
+				} finally {
+					try { stream.close(); } catch(IOException e) {}
+				}
+			}
+		}
+		return defaultTable;
+	}
+	
+	
+	/**
+	 * Returns the preflop odds of two hands against each other, as percentages multiplied with 10.
+	 * @param firstHand : the card codes of the two cards of the first hand.
+	 * @param secondHand : the card codes of the two cards of the second hand.
+	 */
+	public int[] getOdds(long[] firstHand, long[] secondHand)
+	{
+		int firstKey = canonicalKey(firstHand, secondHand);
+		int secondKey = canonicalKey(secondHand, firstHand);
+		boolean swapped = secondKey < firstKey;
+		int index = Arrays.binarySearch(matchupKeys, swapped ? secondKey : firstKey);
+		if(index < 0)
+			throw new IllegalArgumentException("No preflop odds for the given hands, do they share a card?");
+		
+		if(swapped)
+			return new int[] {secondOdds[index], firstOdds[index]};
+		return new int[] {firstOdds[index], secondOdds[index]};
+	}
+	
+	
+	/**
+	 * Returns the key of the matchup with the given hand first, which is the same for all matchups that only differ
+	 * by a permutation of the suits. The cards of each hand are encoded as rank * 4 + suit and sorted from high to
+	 * low, the key packs these four 6 bit codes and is the smallest over all suit permutations.
+	 */
+	static int canonicalKey(long[] firstHand, long[] secondHand)
+	{
+		int key = Integer.MAX_VALUE;
+		for(int[] permutation : SUIT_PERMUTATIONS)
+		{
+			int handKey = (sortedPair(cardCode(firstHand[0], permutation), cardCode(firstHand[1], permutation)) << 12) |
+						  sortedPair(cardCode(secondHand[0], permutation), cardCode(secondHand[1], permutation));
+			key = Math.min(key, handKey);
+		}
+		return key;
+	}
+	
+	
+	/**
+	 * Returns the card code (a long with one bit set) of one of the four cards that are packed in a key.
+	 * @param key : the matchup key.
+	 * @param index : 0 and 1 for the first hand, 2 and 3 for the second hand.
+	 */
+	static long cardOfKey(int key, int index)
+	{
+		int code = (key >>> (6 * (3 - index))) & 0x3F;
+		return 1L << (16 * (code & 3) + (code >>> 2));
+	}
+	
+	
+	private static int cardCode(long card, int[] permutation)
+	{
+		int bit = Long.numberOfTrailingZeros(card);
+		return (bit & 0xF) * 4 + permutation[bit >>> 4];
+	}
+	
+	
+	private static int sortedPair(int code1, int code2)
+	{
+		return code1 > code2 ? (code1 << 6) | code2 : (code2 << 6) | code1;
+	}
+	
+	
+	private static int[][] createSuitPermutations()
+	{
+		int[][] permutations = new int[24][];
+		int count = 0;
+		for(int a = 0; a < 4; a++)
+			for(int b = 0; b < 4; b++)
+				for(int c = 0; c < 4; c++)
+					if(a != b && a != c && b != c)
+						permutations[count++] = new int[] {a, b, c, 6 - a - b - c};
+		return permutations;
+	}
+	
+	
+	/**
+	 * Reads a table in the gzipped binary format: magic, version, number of matchups and then per matchup the key
+	 * and the odds of both hands, sorted by key.
+	 */
+	static PreflopEquityTable read(InputStream stream) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream)));
+		if(in.readInt() != MAGIC || in.readInt() != VERSION)
+			throw new IOException("unknown preflop table format");
+		
+		int count = in.readInt();
+		int[] keys = new int[count];
+		short[] first = new short[count];
+		short[] second = new short[count];
+		for(int i = 0; i < count; i++)
+		{
+			keys[i] = in.readInt();
+			first[i] = in.readShort();
+			second[i] = in.readShort();
+			if(i > 0 && keys[i] <= keys[i - 1])
+				throw new IOException("preflop table keys are not sorted");
+		}
+		return new PreflopEquityTable(keys, first, second);
+	}
+	
+	
+	/**
+	 * Writes this table in the format that is expected by read(InputStream).
+	 */
+	void write(OutputStream stream) throws IOException
+	{
+		GZIPOutputStream gzip = new GZIPOutputStream(stream);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(matchupKeys.length);
+		for(int i = 0; i < matchupKeys.length; i++)
+		{
+			out.writeInt(matchupKeys[i]);
+			out.writeShort(firstOdds[i]);
+			out.writeShort(secondOdds[i]);
+		}
+		out.flush();
+		gzip.finish();
+	}
+}
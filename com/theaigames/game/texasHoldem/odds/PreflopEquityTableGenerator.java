@@ -0,0 +1,204 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.odds;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * Offline generator of the PreflopEquityTable resource. For every heads-up matchup, up to a permutation of the suits,
+ * all 1712304 boards are evaluated. The boards are grouped per first hand: the strength of the first hand is computed
+ * once for every board of the 50 remaining cards, so that per matchup only the second hand needs to be evaluated.
+ * <p>
+ * Usage: java com.theaigames.game.texasHoldem.odds.PreflopEquityTableGenerator [output file]
+ */
+public class PreflopEquityTableGenerator
+{
+	private static final int[][] BINOMIAL = createBinomials(52, 5);
+	
+	public static void main(String[] args) throws IOException
+	{
+		String fileName = args.length > 0 ? args[0] : PreflopEquityTable.RESOURCE_NAME;
+		
+		int[] keys = matchupKeys();
+		short[] firstOdds = new short[keys.length];
+		short[] secondOdds = new short[keys.length];
+		System.out.println("Computing " + keys.length + " matchups...");
+		
+		long startTime = System.currentTimeMillis();
+		int[] firstStrengths = new int[BINOMIAL[50][5]];
+		for(int start = 0; start < keys.length; )
+		{
+			// all matchups with the same first hand are next to each other in the sorted list of keys
+			int end = start;
+			while(end < keys.length && keys[end] >>> 12 == keys[start] >>> 12)
+				end++;
+			
+			long[] firstHand = {PreflopEquityTable.cardOfKey(keys[start], 0), PreflopEquityTable.cardOfKey(keys[start], 1)};
+			long[] stub = remainingCards(firstHand[0] | firstHand[1]);
+			computeStrengths(firstHand[0] | firstHand[1], stub, firstStrengths);
+			
+			for(int i = start; i < end; i++)
+			{
+				long[] secondHand = {PreflopEquityTable.cardOfKey(keys[i], 2), PreflopEquityTable.cardOfKey(keys[i], 3)};
+				long[] wins = countWins(firstStrengths, stub, secondHand[0] | secondHand[1]);
+				firstOdds[i] = (short) Math.round(1000*wins[0] / (wins[0] + wins[1] + .0));
+				secondOdds[i] = (short) Math.round(1000*wins[1] / (wins[0] + wins[1] + .0));
+			}
+			start = end;
+			System.out.format("%d/%d matchups done, %d s%n", end, keys.length,
+							  (System.currentTimeMillis() - startTime) / 1000);
+		}
+		
+		OutputStream out = new FileOutputStream(fileName);
+		try {
+			new PreflopEquityTable(keys, firstOdds, secondOdds).write(out);
+		} finally {
+			out.close();
+		}
+		System.out.println("Written " + fileName);
+	}
+	
+	
+	/**
+	 * Returns the sorted canonical keys of all heads-up matchups.
+	 */
+	private static int[] matchupKeys()
+	{
+		long[][] hands = new long[52 * 51 / 2][];
+		int count = 0;
+		for(int i = 0; i < 52; i++)
+			for(int j = i + 1; j < 52; j++)
+				hands[count++] = new long[] {cardCode(i), cardCode(j)};
+		
+		int[] keys = new int[hands.length * hands.length / 2];
+		int numberOfKeys = 0;
+		for(int i = 0; i < hands.length; i++)
+		{
+			for(int j = i + 1; j < hands.length; j++)
+			{
+				if(((hands[i][0] | hands[i][1]) & (hands[j][0] | hands[j][1])) != 0)
+					continue;
+				keys[numberOfKeys++] = Math.min(PreflopEquityTable.canonicalKey(hands[i], hands[j]),
+												PreflopEquityTable.canonicalKey(hands[j], hands[i]));
+			}
+		}
+		
+		Arrays.sort(keys, 0, numberOfKeys);
+		int unique = 0;
+		for(int i = 0; i < numberOfKeys; i++)
+			if(unique == 0 || keys[i] != keys[unique - 1])
+				keys[unique++] = keys[i];
+		return Arrays.copyOf(keys, unique);
+	}
+	
+	
+	/**
+	 * Stores the strength of the given hand for every board of five cards out of the stub. The board with stub
+	 * positions a < b < c < d < e is stored at index C(a,1) + C(b,2) + C(c,3) + C(d,4) + C(e,5).
+	 */
+	private static void computeStrengths(long hand, long[] stub, int[] strengths)
+	{
+		for(int e = 4; e < stub.length; e++)
+			for(int d = 3; d < e; d++)
+				for(int c = 2; c < d; c++)
+					for(int b = 1; b < c; b++)
+					{
+						long board = hand | stub[b] | stub[c] | stub[d] | stub[e];
+						int index = BINOMIAL[b][2] + BINOMIAL[c][3] + BINOMIAL[d][4] + BINOMIAL[e][5];
+						for(int a = 0; a < b; a++)
+							strengths[index + a] = HandEval.hand7Eval(board | stub[a]);
+					}
+	}
+	
+	
+	/**
+	 * Evaluates the second hand on every board that does not contain its cards and compares it with the stored
+	 * strength of the first hand. Returns the wins of both hands, where a tie counts as a win for both.
+	 */
+	private static long[] countWins(int[] firstStrengths, long[] stub, long secondHand)
+	{
+		// the positions in the stub of the first hand of the cards that are not in the second hand
+		int[] positions = new int[stub.length - 2];
+		int count = 0;
+		for(int i = 0; i < stub.length; i++)
+			if((stub[i] & secondHand) == 0)
+				positions[count++] = i;
+		
+		long firstWins = 0, secondWins = 0, ties = 0;
+		for(int e = 4; e < positions.length; e++)
+			for(int d = 3; d < e; d++)
+				for(int c = 2; c < d; c++)
+					for(int b = 1; b < c; b++)
+					{
+						long board = secondHand | stub[positions[b]] | stub[positions[c]] | stub[positions[d]] |
+									 stub[positions[e]];
+						int index = BINOMIAL[positions[b]][2] + BINOMIAL[positions[c]][3] +
+									BINOMIAL[positions[d]][4] + BINOMIAL[positions[e]][5];
+						for(int a = 0; a < b; a++)
+						{
+							int firstStrength = firstStrengths[index + positions[a]];
+							int secondStrength = HandEval.hand7Eval(board | stub[positions[a]]);
+							if(firstStrength > secondStrength)
+								firstWins++;
+							else if(firstStrength < secondStrength)
+								secondWins++;
+							else
+								ties++;
+						}
+					}
+		return new long[] {firstWins + ties, secondWins + ties};
+	}
+	
+	
+	private static long[] remainingCards(long deadCards)
+	{
+		long[] stub = new long[50];
+		int count = 0;
+		for(int i = 0; i < 52; i++)
+			if((cardCode(i) & deadCards) == 0)
+				stub[count++] = cardCode(i);
+		return stub;
+	}
+	
+	
+	/**
+	 * Returns the card code of the card with the given number, as used by Card.getNumber().
+	 */
+	private static long cardCode(int number)
+	{
+		return 1L << (16 * (number / 13) + number % 13);
+	}
+	
+	
+	private static int[][] createBinomials(int n, int k)
+	{
+		int[][] binomials = new int[n + 1][k + 1];
+		for(int i = 0; i <= n; i++)
+		{
+			binomials[i][0] = 1;
+			for(int j = 1; j <= Math.min(i, k); j++)
+				binomials[i][j] = binomials[i - 1][j - 1] + (j <= i - 1 ? binomials[i - 1][j] : 0);
+		}
+		return binomials;
+	}
+}
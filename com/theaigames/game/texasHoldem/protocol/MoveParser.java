@@ -0,0 +1,155 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.protocol;
+
+/**
+ * Parses the reply of a bot to an Action request, such as "raise 120", without regular expressions or boxing and
+ * without creating strings for the known actions. A reply consists of an action and an amount separated by a single
+ * whitespace character, trailing whitespace is ignored. The amount is a decimal number of which the fraction is
+ * dropped. The parser keeps the last parsed move, so one parser can be reused for every reply of a bot.
+ */
+public class MoveParser
+{
+	private static final String[] ACTIONS = {"check", "call", "raise", "fold"};	// returned without a new string
+	
+	private String action;
+	private int amount;
+	
+	/**
+	 * Parses a reply, after which the move can be read with getAction() and getAmount() if the result is OK.
+	 * @param reply : the line the bot replied with
+	 * @return : OK or what is wrong with the reply
+	 */
+	public ParseResult parse(CharSequence reply)
+	{
+		int end = reply.length();
+		while(end > 0 && isWhitespace(reply.charAt(end - 1)))
+			end--;
+		if(end == 0)
+			return ParseResult.EMPTY;
+		
+		// exactly one whitespace character between the action and the amount, an empty action is an invalid action
+		int separator = 0;
+		while(separator < end && !isWhitespace(reply.charAt(separator)))
+			separator++;
+		if(separator == end || isWhitespace(reply.charAt(separator + 1)))
+			return ParseResult.PART_COUNT;
+		for(int i = separator + 2; i < end; i++)
+			if(isWhitespace(reply.charAt(i)))
+				return ParseResult.PART_COUNT;
+		
+		if(!parseAmount(reply, separator + 1, end))
+			return ParseResult.BAD_AMOUNT;
+		action = parseAction(reply, separator);
+		return ParseResult.OK;
+	}
+	
+	/**
+	 * Returns whether the line starts with one of the known actions, followed by whitespace or nothing. Only such lines
+	 * can be a reply, other output of the bot such as debug lines is not. A line that starts with an action can still
+	 * be a malformed reply, which parse() reports.
+	 * @param line : a line the bot printed
+	 */
+	public static boolean startsWithAction(CharSequence line)
+	{
+		int length = 0;
+		while(length < line.length() && !isWhitespace(line.charAt(length)))
+			length++;
+		return findAction(line, length) != null;
+	}
+	
+	/**
+	 * @return : the action of the last move that was parsed
+	 */
+	public String getAction()
+	{
+		return action;
+	}
+	
+	/**
+	 * @return : the amount of the last move that was parsed
+	 */
+	public int getAmount()
+	{
+		return amount;
+	}
+	
+	/**
+	 * Returns the action at the start of the reply, the known actions without creating a new string.
+	 */
+	private static String parseAction(CharSequence reply, int length)
+	{
+		String action = findAction(reply, length);
+		return action != null ? action : reply.subSequence(0, length).toString();
+	}
+	
+	/**
+	 * Returns the known action that equals the first 'length' characters of the reply, or null if there is none.
+	 */
+	private static String findAction(CharSequence reply, int length)
+	{
+		for(String action : ACTIONS)
+		{
+			if(action.length() != length)
+				continue;
+			int i = 0;
+			while(i < length && action.charAt(i) == reply.charAt(i))
+				i++;
+			if(i == length)
+				return action;
+		}
+		return null;
+	}
+	
+	/**
+	 * Parses an optional sign, digits and an optional fraction into 'amount', which is capped at the int range like
+	 * a cast from a double. Returns whether the text is such a number with at least one digit.
+	 */
+	private boolean parseAmount(CharSequence reply, int start, int end)
+	{
+		int i = start;
+		boolean negative = false;
+		if(reply.charAt(i) == '-' || reply.charAt(i) == '+')
+			negative = reply.charAt(i++) == '-';
+		
+		long value = 0;
+		int digits = 0;
+		for(; i < end && isDigit(reply.charAt(i)); i++, digits++)
+			value = Math.min(value * 10 + (reply.charAt(i) - '0'), 1L << 32);
+		if(i < end && reply.charAt(i) == '.')
+			for(i++; i < end && isDigit(reply.charAt(i)); i++)
+				digits++;
+		if(i < end || digits == 0)
+			return false;
+		
+		value = negative ? -value : value;
+		amount = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+		return true;
+	}
+	
+	private static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+	
+	// the same characters as \s in a regular expression
+	private static boolean isWhitespace(char c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+}
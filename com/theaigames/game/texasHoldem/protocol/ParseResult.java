@@ -0,0 +1,44 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.protocol;
+
+/**
+ * The outcome of parsing the reply of a bot with the MoveParser.
+ */
+public enum ParseResult
+{
+	OK(""),
+	EMPTY("is empty"),
+	PART_COUNT("does not split into two parts"),
+	BAD_AMOUNT("does not end with a number");
+	
+	private final String description;
+	
+	private ParseResult(String description)
+	{
+		this.description = description;
+	}
+	
+	/**
+	 * @return : what is wrong with the reply, to tell the bot in its dump
+	 */
+	public String getDescription()
+	{
+		return description;
+	}
+}
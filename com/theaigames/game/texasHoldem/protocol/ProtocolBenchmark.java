@@ -0,0 +1,150 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Checks that the ProtocolWriter writes the same lines as String.format and that the MoveParser reads the same moves
+ * as splitting the reply and parsing its amount with Double.parseDouble, and measures both ways for what the engine
+ * does on every action of a bot: encoding the pre-move information and the Action request, and parsing the reply.
+ * <p>
+ * Usage: java com.theaigames.game.texasHoldem.protocol.ProtocolBenchmark [number of actions per run]
+ */
+public class ProtocolBenchmark
+{
+	private static final String[] REPLIES = {"raise 120", "call 0", "check 0", "fold 0", "raise 85.5", "call 0\r"};
+	
+	public static void main(String[] args)
+	{
+		int numberOfActions = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		verifyWriter(new Random(1), 100000);
+		verifyParser(new Random(2), 1000000);
+		
+		for(int run = 0; run < 3; run++)
+		{
+			long startTime = System.nanoTime();
+			long checksum = formatAndSplit(numberOfActions);
+			long timeOld = System.nanoTime() - startTime;
+			
+			startTime = System.nanoTime();
+			checksum -= writeAndParse(numberOfActions);
+			long timeNew = System.nanoTime() - startTime;
+			
+			if(checksum != 0)
+				throw new IllegalStateException("The two ways of encoding and parsing do not give the same result");
+			System.out.printf("run %d: String.format and split %6.1f ns/action, ProtocolWriter and MoveParser %6.1f"
+							  + " ns/action%n", run + 1, (double) timeOld / numberOfActions,
+							  (double) timeNew / numberOfActions);
+		}
+	}
+	
+	/**
+	 * Encodes and parses the way the engine did before the ProtocolWriter and the MoveParser.
+	 */
+	private static long formatAndSplit(int numberOfActions)
+	{
+		long checksum = 0;
+		for(int i = 0; i < numberOfActions; i++)
+		{
+			String info = String.format("Match maxWinPot %d\n", i) + String.format("Match amountToCall %d", i & 0xff);
+			String request = String.format("Action %s %d", "player1", 10000 - (i & 0x3ff));
+			checksum += (info + "\n").getBytes(StandardCharsets.UTF_8).length;
+			checksum += (request + "\n").getBytes(StandardCharsets.UTF_8).length;
+			
+			String[] parts = REPLIES[i % REPLIES.length].split("\\s");
+			checksum += parts[0].length() + (int) Double.parseDouble(parts[1]);
+		}
+		return checksum;
+	}
+	
+	private static long writeAndParse(int numberOfActions)
+	{
+		ProtocolWriter writer = new ProtocolWriter();
+		MoveParser parser = new MoveParser();
+		long checksum = 0;
+		for(int i = 0; i < numberOfActions; i++)
+		{
+			writer.clear().match("maxWinPot", i).match("amountToCall", i & 0xff);
+			checksum += writer.size();
+			writer.clear().action("player1", 10000 - (i & 0x3ff));
+			checksum += writer.size();
+			
+			parser.parse(REPLIES[i % REPLIES.length]);
+			checksum += parser.getAction().length() + parser.getAmount();
+		}
+		return checksum;
+	}
+	
+	private static void verifyWriter(Random random, int numberOfLines)
+	{
+		ProtocolWriter writer = new ProtocolWriter(1);
+		for(int i = 0; i < numberOfLines; i++)
+		{
+			int value = random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(100000);
+			String name = "player" + random.nextInt(10);
+			writer.clear().settings("timebank", value).match("onButton", name).bot(name, "stack", value)
+				  .move(name, "raise", value).action(name, value);
+			String expected = String.format("Settings timebank %d\nMatch onButton %s\n%s stack %d\n%s raise %d\n"
+											+ "Action %s %d\n", value, name, name, value, name, value, name, value);
+			String encoded = new String(writer.bytes(), 0, writer.size(), StandardCharsets.US_ASCII);
+			if(!expected.equals(encoded) || !expected.equals(writer.toString()))
+				throw new IllegalStateException("ProtocolWriter wrote '" + encoded + "' instead of '" + expected + "'");
+		}
+		System.out.println("ProtocolWriter agrees with String.format on " + numberOfLines + " messages");
+	}
+	
+	/**
+	 * Compares the parser to the old way on random replies. Replies of which Double.parseDouble could not parse the
+	 * amount stopped the match with an exception, for those the parser only has to report an error.
+	 */
+	private static void verifyParser(Random random, int numberOfReplies)
+	{
+		String[] actions = {"raise", "call", "check", "fold", "allin", ""};
+		String[] separators = {" ", "\t", "  ", ""};
+		String[] ends = {"", " ", "\r", " \t"};
+		String amountCharacters = "0123456789.-+ ";
+		MoveParser parser = new MoveParser();
+		for(int i = 0; i < numberOfReplies; i++)
+		{
+			StringBuilder reply = new StringBuilder(actions[random.nextInt(actions.length)]);
+			reply.append(separators[random.nextInt(separators.length)]);
+			for(int length = random.nextInt(6); length > 0; length--)
+				reply.append(amountCharacters.charAt(random.nextInt(amountCharacters.length())));
+			reply.append(ends[random.nextInt(ends.length)]);
+			
+			String[] parts = reply.toString().split("\\s");
+			Integer expectedAmount = null;
+			if(parts.length == 2)
+			{
+				try {
+					expectedAmount = (int) Double.parseDouble(parts[1]);
+				} catch (NumberFormatException e) {}
+			}
+			
+			ParseResult result = parser.parse(reply);
+			boolean agrees = expectedAmount == null ? result != ParseResult.OK : result == ParseResult.OK &&
+							 parser.getAction().equals(parts[0]) && parser.getAmount() == expectedAmount;
+			if(!agrees)
+				throw new IllegalStateException("MoveParser parsed '" + reply + "' as " + result + " "
+												+ parser.getAction() + " " + parser.getAmount());
+		}
+		System.out.println("MoveParser agrees with split and Double.parseDouble on " + numberOfReplies + " replies");
+	}
+}
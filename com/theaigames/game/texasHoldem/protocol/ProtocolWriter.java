@@ -0,0 +1,130 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.texasHoldem.protocol;
+
+import com.theaigames.engine.io.LineEncoder;
+
+/**
+ * Builds the lines that the engine sends to the bots directly in a reusable byte buffer. Every method writes one
+ * complete line, so several lines can be collected and sent to a bot at once.
+ */
+public class ProtocolWriter extends LineEncoder
+{
+	public ProtocolWriter()
+	{
+		super();
+	}
+	
+	/**
+	 * @param capacity : the number of bytes the writer can hold before it has to grow
+	 */
+	public ProtocolWriter(int capacity)
+	{
+		super(capacity);
+	}
+	
+	@Override
+	public ProtocolWriter clear()
+	{
+		super.clear();
+		return this;
+	}
+	
+	/**
+	 * Writes a line like "Settings timebank 10000".
+	 * @param key : the name of the setting
+	 * @param value : the value of the setting
+	 */
+	public ProtocolWriter settings(String key, long value)
+	{
+		append("Settings ").append(key).append(' ').append(value).newLine();
+		return this;
+	}
+	
+	/**
+	 * Writes a line like "Settings your_bot player1".
+	 */
+	public ProtocolWriter settings(String key, CharSequence value)
+	{
+		append("Settings ").append(key).append(' ').append(value).newLine();
+		return this;
+	}
+	
+	/**
+	 * Writes a line like "Match round 12".
+	 * @param key : the name of the match information
+	 * @param value : the value of the match information
+	 */
+	public ProtocolWriter match(String key, long value)
+	{
+		append("Match ").append(key).append(' ').append(value).newLine();
+		return this;
+	}
+	
+	/**
+	 * Writes a line like "Match table [Ah,Kd,2c]".
+	 */
+	public ProtocolWriter match(String key, CharSequence value)
+	{
+		append("Match ").append(key).append(' ').append(value).newLine();
+		return this;
+	}
+	
+	/**
+	 * Writes a line like "player1 stack 1500", with information about one bot.
+	 * @param bot : the name of the bot the information is about
+	 * @param key : the name of the information
+	 * @param value : the value of the information
+	 */
+	public ProtocolWriter bot(String bot, String key, long value)
+	{
+		append(bot).append(' ').append(key).append(' ').append(value).newLine();
+		return this;
+	}
+	
+	/**
+	 * Writes a line like "player1 hand [Ah,Kd]".
+	 */
+	public ProtocolWriter bot(String bot, String key, CharSequence value)
+	{
+		append(bot).append(' ').append(key).append(' ').append(value).newLine();
+		return this;
+	}
+	
+	/**
+	 * Writes a line like "player1 raise 120", with a move a bot made.
+	 * @param bot : the name of the bot that made the move
+	 * @param action : the action of the move
+	 * @param amount : the amount of the move
+	 */
+	public ProtocolWriter move(String bot, String action, long amount)
+	{
+		return bot(bot, action, amount);
+	}
+	
+	/**
+	 * Writes a line like "Action player1 10000", which asks a bot for its move.
+	 * @param bot : the name of the bot that has to move
+	 * @param timeBank : the time the bot has left in its time bank
+	 */
+	public ProtocolWriter action(String bot, long timeBank)
+	{
+		append("Action ").append(bot).append(' ').append(timeBank).newLine();
+		return this;
+	}
+}
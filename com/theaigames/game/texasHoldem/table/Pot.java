@@ -17,37 +17,38 @@
 
 package com.theaigames.game.texasHoldem.table;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-
-import com.theaigames.game.texasHoldem.Player;
-
 /**
  * Class Pot is used for keeping track of the pot size, both from the main pot and
- * the possible side pots, and the players that are involved in the side pots.
+ * the possible side pots, and the players that are involved in the side pots. The bets are stored per seat and the
+ * seats are kept sorted on the size of their total bet, which is updated on each bet. This sorted order gives the
+ * contribution levels of the main pot and the side pots without sorting or copying, and together with the prefix sums
+ * of the sorted bets it gives the pot a bot can win with a binary search.
  */
 public class Pot
 {
-	private Map<Player, Integer> botBetSizes;
+	private int[] botBetSizes;			// total bet of each seat in the current hand
+	private int[] seatsByBet;			// all seats, sorted on their total bet from low to high
+	private int[] sortedPositions;		// position of each seat in 'seatsByBet'
+	private int[] sortedBetSums;		// sum of the bets of the first i seats in 'seatsByBet', at index i
 	private int totalPot;
 	private int roundPot;
 	private BetRound round;
 	
 	/**
 	 * Creates a Pot object, used for keeping track of the pot for a specific hand.
-	 * @param bots : integer array of bot IDs that play in the current hand
+	 * @param numberOfSeats : the number of seats at the table, bets are stored by seat index
 	 */
-	public Pot(Collection<Player> bots)
+	public Pot(int numberOfSeats)
 	{
-		botBetSizes = new HashMap<Player, Integer>();
-		Iterator<Player> botIterator = bots.iterator();
-		while(botIterator.hasNext())
-			botBetSizes.put(botIterator.next(), 0);
+		botBetSizes = new int[numberOfSeats];
+		seatsByBet = new int[numberOfSeats];
+		sortedPositions = new int[numberOfSeats];
+		sortedBetSums = new int[numberOfSeats + 1];
+		for(int i = 0; i < numberOfSeats; i++)
+		{
+			seatsByBet[i] = i;
+			sortedPositions[i] = i;
+		}
 		
 		totalPot = 0;
 		roundPot = 0;
@@ -58,11 +59,26 @@ public class Pot
 	/**
 	 * Stores the bet of a bot.
 	 */
-	public void addBet(Player bot, int size, BetRound round)
+	public void addBet(int seat, int size, BetRound round)
 	{
-		botBetSizes.put(bot, botBetSizes.get(bot) + size);
+		botBetSizes[seat] += size;
 		totalPot += size;
 		
+		// move the seat up in the sorted order until the next seat has bet at least as much
+		int position = sortedPositions[seat];
+		int firstChangedPosition = position;
+		while(position + 1 < seatsByBet.length && botBetSizes[seatsByBet[position + 1]] < botBetSizes[seat])
+		{
+			int nextSeat = seatsByBet[position + 1];
+			seatsByBet[position] = nextSeat;
+			sortedPositions[nextSeat] = position;
+			position++;
+		}
+		seatsByBet[position] = seat;
+		sortedPositions[seat] = position;
+		for(int i = firstChangedPosition; i < seatsByBet.length; i++)
+			sortedBetSums[i + 1] = sortedBetSums[i] + botBetSizes[seatsByBet[i]];
+		
 		// if a new round has started, then reset the round pot, else update it
 		if(round.equals(this.round))
 			roundPot += size;
@@ -75,107 +91,109 @@ public class Pot
 	
 	
 	/**
-	 * Return value of function payoutWinners.
+	 * Result of function payoutWinners: the main pot and the side pots, the chips that each seat wins from each pot and
+	 * the total winnings per seat. A Payout can be reused for every hand at a table, so that the showdown allocates
+	 * nothing.
 	 */
-	public class PayoutWinnerInfo
+	public static class Payout
 	{
-		private ArrayList<Integer> pots;
-		private ArrayList<ArrayList<Player>> winnerPerPot;
-		public PayoutWinnerInfo(ArrayList<Integer> pots, ArrayList<ArrayList<Player>> winnerPerPot)
+		private int numberOfPots;
+		private int[] potSizes;
+		private int[][] potWinnings;		// chips won per pot and seat, -1 for the seats that do not win the pot
+		private int[] winPerSeat;
+		
+		public Payout(int numberOfSeats)
 		{
-			super();
-			this.pots = pots;
-			this.winnerPerPot = winnerPerPot;
+			potSizes = new int[numberOfSeats];
+			potWinnings = new int[numberOfSeats][numberOfSeats];
+			winPerSeat = new int[numberOfSeats];
+		}
+		public int getNumberOfPots() {
+			return numberOfPots;
+		}
+		public int getPotSize(int pot) {
+			return potSizes[pot];
 		}
-		public ArrayList<Integer> getPots() {
-			return pots;
+		public boolean isWinner(int pot, int seat) {
+			return potWinnings[pot][seat] >= 0;
 		}
-		public ArrayList<ArrayList<Player>> getWinnerPerPot() {
-			return winnerPerPot;
+		public int getWinnings(int pot, int seat) {
+			return potWinnings[pot][seat];
+		}
+		public int[] getWinPerSeat() {
+			return winPerSeat;
 		}
 	}
 	
 	/**
-	 * Calculates for all the bots which pots they win. It first calculates which main pot and side pots there are.
-	 * Then it computes which bot(s) win which pot. The returned ArrayList contains three objects. The first object is
-	 * an ArrayList of the pot sizes represented as integers. The second object is an ArrayList of winners per pot,
-	 * where each element is itself an ArrayList of winners of the corresponding pot.
-	 * @param botHandStrengths : A map of PokerBots paired with their corresponding hand strengths
+	 * Calculates for all the bots which pots they win and how many chips they get. There is one pot per distinct total
+	 * bet of the involved bots. Each pot is won by the involved bot(s) with the best hand among those that bet at least
+	 * the level of the pot. When a pot is split, the odd chips go one by one to the winners in seat order, starting at
+	 * the given first seat. The result is written into the given Payout.
+	 * @param botHandStrengths : the hand strength per seat, negative for the seats that are not involved
+	 * @param firstSeat : the seat that gets the first odd chip of a split pot, normally the seat after the button
+	 * @param payout : the Payout to write the pots and winnings into, made for the number of seats of this pot
 	 */
-	public PayoutWinnerInfo payoutWinners(HashMap<Player, Integer> botHandStrengths)
-	{	
-		// Calculate with the involved bots how much each bot put in the main pot and how much per side pot
-		ArrayList<Integer> involvedBotBets = new ArrayList<Integer>();
-		for(Entry<Player, Integer> entry : botHandStrengths.entrySet())
-			involvedBotBets.add(botBetSizes.get(entry.getKey()));
-		Collections.sort(involvedBotBets);
-		ArrayList<Integer> potsAmountPerBot = new ArrayList<Integer>();
-		int previousAmount = 0;
-		for(int i = 0; i < involvedBotBets.size(); i++)
-		{
-			potsAmountPerBot.add(involvedBotBets.get(i) - previousAmount);
-			previousAmount = involvedBotBets.get(i);
-		}
-		
-		// Get the sizes of the main pot and the side pots
-		ArrayList<Player> bots = new ArrayList<Player>(botHandStrengths.keySet());
-		ArrayList<Integer> pots = getPots(bots);
+	public void payoutWinners(int[] botHandStrengths, int firstSeat, Payout payout)
+	{
+		int numberOfSeats = botBetSizes.length;
+		for(int seat = 0; seat < numberOfSeats; seat++)
+			payout.winPerSeat[seat] = 0;
 		
-		// Calculate per pot part which players are winning it
-		ArrayList<ArrayList<Player>> winnerPerPot = new ArrayList<ArrayList<Player>>();
-		int potIndex = 0;
-		int sumHandledPots = 0;
-		while(botHandStrengths.size() > 0)
-		{		
-			// Get out of the remaining bots the bot(s) that has/have the best hand
-			int bestHandValue = 0;
-			ArrayList<Player> currentBestBots = new ArrayList<Player>();
-			for(Entry<Player, Integer> entry : botHandStrengths.entrySet())
+		// walk the levels of the involved bets from low to high, as in getPots
+		int numberOfPots = 0;
+		int previousLevel = -1;
+		int previousPotsSum = 0;
+		int sumBelowLevel = 0;
+		int position = 0;
+		for(int i = 0; i < numberOfSeats; i++)
+		{
+			int level = botBetSizes[seatsByBet[i]];
+			if(botHandStrengths[seatsByBet[i]] < 0 || level == previousLevel)
+				continue;
+			
+			while(position < numberOfSeats && botBetSizes[seatsByBet[position]] <= level)
+				sumBelowLevel += botBetSizes[seatsByBet[position++]];
+			int potsSum = sumBelowLevel + level*(numberOfSeats - position);
+			int potSize = potsSum - previousPotsSum;
+			previousPotsSum = potsSum;
+			previousLevel = level;
+			
+			// get the best hand among the involved bots that bet at least this level
+			int bestHandValue = -1;
+			int numberOfWinners = 0;
+			for(int seat = 0; seat < numberOfSeats; seat++)
 			{
-				int value = entry.getValue();
+				int value = botHandStrengths[seat];
+				if(value < 0 || botBetSizes[seat] < level || value < bestHandValue)
+					continue;
 				if(value > bestHandValue)
-					currentBestBots.clear();
-				if(value >= bestHandValue)
 				{
 					bestHandValue = value;
-					currentBestBots.add(entry.getKey());
-				}					
+					numberOfWinners = 0;
+				}
+				numberOfWinners++;
 			}
-				
-			// Calculate for each bot with currently the best hand in which remaining pots he is involved
-			int maxPotIndex = 0;
-			int maxSumHandledPots = 0;
-			for(int i = 0; i < currentBestBots.size(); i++)
+			
+			// divide the pot among the winners, the odd chips go to the first winners from the first seat on
+			int amountPerWinner = potSize / numberOfWinners;
+			int restChips = potSize - (numberOfWinners*amountPerWinner);
+			int[] winnings = payout.potWinnings[numberOfPots];
+			for(int j = 0; j < numberOfSeats; j++)
 			{
-				int currentPotIndex = potIndex;
-				int currentSumHandledPots = sumHandledPots;
-				Player currentBot = currentBestBots.get(i);
-				botHandStrengths.remove(currentBot);
-				while(botBetSizes.get(currentBot) > currentSumHandledPots)
+				int seat = (firstSeat + j) % numberOfSeats;
+				winnings[seat] = -1;
+				if(botHandStrengths[seat] == bestHandValue && botBetSizes[seat] >= level)
 				{
-					ArrayList<Player> currentPotWinners = new ArrayList<Player>();
-					if(currentPotIndex <= winnerPerPot.size() - 1)
-					{
-						currentPotWinners = winnerPerPot.get(currentPotIndex);
-						currentPotWinners.add(currentBot);
-						winnerPerPot.set(currentPotIndex, currentPotWinners);
-					}
-					else
-					{
-						currentPotWinners.add(currentBot);
-						winnerPerPot.add(currentPotWinners);
-					}
-					//currentSumHandledPots += pots.get(currentPotIndex++);
-					currentSumHandledPots += potsAmountPerBot.get(currentPotIndex++);
+					winnings[seat] = amountPerWinner;
+					if(restChips-- > 0)
+						winnings[seat]++;
+					payout.winPerSeat[seat] += winnings[seat];
 				}
-				maxPotIndex = Math.max(maxPotIndex, currentPotIndex);
-				maxSumHandledPots = Math.max(maxSumHandledPots, currentSumHandledPots);
 			}
-			potIndex = maxPotIndex;
-			sumHandledPots = maxSumHandledPots;
+			payout.potSizes[numberOfPots++] = potSize;
 		}
-		
-		return new PayoutWinnerInfo(pots, winnerPerPot);
+		payout.numberOfPots = numberOfPots;
 	}
 	
 	
@@ -183,23 +201,27 @@ public class Pot
 	 * Calculates the part of the current pot that a given player can win in total. A remaining stack size of the player
 	 * must be given. This is useful when a player has less chips than the current raise, because the player can then
 	 * only win a part of the total pot. If you know that a player has enough chips to call, then it is faster to just
-	 * request the total pot size.
-	 * @param bot : the bot to do the request for.
-	 * @param maxSize : the amount of chips the given player can add before being all-in.
+	 * request the total pot size. Every bet counts up to the total bet the player can make, the bets below it are found
+	 * with a binary search in the sorted bets.
+	 * @param seat : the seat of the bot to do the request for.
+	 * @param chipsToAllIn : the amount of chips the given player can add before being all-in.
 	 */
-	public int getMaxPotToWin(Player bot, int chipsToAllIn)
+	public int getMaxPotToWin(int seat, int chipsToAllIn)
 	{
-		int maxBet = botBetSizes.get(bot) + chipsToAllIn;		
-		int maxPotPart = 0;
-		for(Entry<Player, Integer> entry : botBetSizes.entrySet())
+		int maxBet = botBetSizes[seat] + chipsToAllIn;
+		
+		// find the number of seats that bet less than the maximal bet
+		int low = 0;
+		int high = seatsByBet.length;
+		while(low < high)
 		{
-		    int botBet = entry.getValue();
-		    if(botBet < maxBet)
-		    	maxPotPart += botBet;
-		    else
-		    	maxPotPart += maxBet;
-		}		
-		return maxPotPart;
+			int middle = (low + high) >>> 1;
+			if(botBetSizes[seatsByBet[middle]] < maxBet)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return sortedBetSums[low] + maxBet*(seatsByBet.length - low);
 	}
 	
 	
@@ -231,33 +253,34 @@ public class Pot
 	
 	
 	/**
-	 * Returns the size of the main pot and possible side pots, given the bots that are still involved in the hand.
-	 * @param involvedBots : the bots that are still in the hand
+	 * Computes the size of the main pot and possible side pots, given the bots that are still involved in the hand.
+	 * There is one pot per distinct total bet of the involved bots, containing from every bot the part of its bet
+	 * between the previous level and this level. Returns the number of pots, which is at most the number of involved
+	 * bots.
+	 * @param involved : which seats are still in the hand
+	 * @param pots : array to store the pot sizes in, main pot first, long enough for the number of involved bots
 	 */
-	public ArrayList<Integer> getPots(ArrayList<Player> involvedBots)
+	public int getPots(boolean[] involved, int[] pots)
 	{
-		ArrayList<Integer> pots = new ArrayList<Integer>();
-		Map<Player, Integer> tempBotBetSizes = new HashMap<Player, Integer>(botBetSizes);
-		while(involvedBots.size() > 0)
+		int numberOfPots = 0;
+		int previousLevel = -1;
+		int previousPotsSum = 0;
+		int sumBelowLevel = 0;		// sum of the bets of the seats before 'position'
+		int position = 0;
+		for(int i = 0; i < seatsByBet.length; i++)
 		{
-			int lowestBet = Integer.MAX_VALUE;
-			int currentPotSize = 0;
-			for(int i = 0; i < involvedBots.size(); i++)
-				lowestBet = Math.min(tempBotBetSizes.get(involvedBots.get(i)), lowestBet);
-			
-			for(Entry<Player, Integer> entry : tempBotBetSizes.entrySet())
-			{
-			    Player key = entry.getKey();
-			    int value = entry.getValue();
-			    int adjustment = Math.min(value, lowestBet);
-			    currentPotSize += adjustment;
-				tempBotBetSizes.put(key, value - adjustment);
-				if(value == adjustment)
-					involvedBots.remove(key);				
-			}
+			int level = botBetSizes[seatsByBet[i]];
+			if(!involved[seatsByBet[i]] || level == previousLevel)
+				continue;
 			
-			pots.add(currentPotSize);
+			// all bets up to this level count fully, the larger bets count up to this level
+			while(position < seatsByBet.length && botBetSizes[seatsByBet[position]] <= level)
+				sumBelowLevel += botBetSizes[seatsByBet[position++]];
+			int potsSum = sumBelowLevel + level*(seatsByBet.length - position);
+			pots[numberOfPots++] = potsSum - previousPotsSum;
+			previousPotsSum = potsSum;
+			previousLevel = level;
 		}
-		return pots;
+		return numberOfPots;
 	}
 }
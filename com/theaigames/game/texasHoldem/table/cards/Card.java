@@ -17,26 +17,31 @@
 
 package com.theaigames.game.texasHoldem.table.cards;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
- * A Card class object represents one card
+ * A Card class object represents one card. Cards are immutable and there is exactly one object per card, which is
+ * obtained with Card.of or Card.getCard.
  */
 public class Card
 {
-	private CardHeight height;
-	private CardSuit suit;
-	private int number;
-	private static Map<String,Card> stringToCard;
+	private static final String HEIGHT_CHARACTERS = "23456789TJQKA";
+	private static final String SUIT_CHARACTERS = "shcd";
+	private static final Card[] CARDS = createCards();
+	
+	private final CardHeight height;
+	private final CardSuit suit;
+	private final int number;
+	private final long mask;			// the card as used by the hand evaluators
+	private final String string;
 
 	
 	/**
-	 * Creates a card object based on a number between 0 and 51
+	 * Creates a card object based on a number between 0 and 51, only used to fill the table of all cards
 	 */
-	public Card(int num)
+	private Card(int num)
 	{
 		number = num;
+		mask = 1l << (16*(number / 13) + number % 13);
+		string = "" + HEIGHT_CHARACTERS.charAt(number % 13) + SUIT_CHARACTERS.charAt(number / 13);
 		int findSuit = number / 13;
 		switch(findSuit)
 		{
@@ -68,22 +73,29 @@ public class Card
 	
 	
 	/**
-	 * Returns the Card object that corresponds with the given card string. The first time this method is called, a
-	 * map of all Cards corresponding with correct input strings is created.
+	 * Returns the Card object of the given number between 0 and 51. There is only one Card object per card.
+	 * @param num : the number of the card
+	 */
+	public static Card of(int num)
+	{
+		return CARDS[num];
+	}
+	
+	
+	/**
+	 * Returns the Card object that corresponds with the given card string, or null if the string is not a card.
 	 * @param string : the string to be converted to a Card
 	 */
 	public static Card getCard(String string)
 	{
-		if(stringToCard == null)
-		{
-			stringToCard = new HashMap<String,Card>();
-			for(int i = 0; i < 52; ++i)
-			{
-				Card card = new Card(i);
-				stringToCard.put(card.toString(), card);
-			}
-		}
-		return stringToCard.get(string);
+		if(string == null || string.length() != 2)
+			return null;
+		
+		int height = HEIGHT_CHARACTERS.indexOf(string.charAt(0));
+		int suit = SUIT_CHARACTERS.indexOf(string.charAt(1));
+		if(height < 0 || suit < 0)
+			return null;
+		return CARDS[13*suit + height];
 	}
 
 
@@ -92,9 +104,7 @@ public class Card
 	 */
 	public long getNumber()
 	{
-		int suitShift = number / 13;
-		int heightShift = number % 13;
-		return (1l << (16*suitShift + heightShift));
+		return mask;
 	}
 	
 	
@@ -121,33 +131,15 @@ public class Card
 	 */
 	public String toString()
 	{
-		String str = null;
-		int findHeight = number % 13;
-		switch(findHeight)
-		{
-			case 0 : str = "2"; break;
-			case 1 : str = "3"; break;
-			case 2 : str = "4"; break;
-			case 3 : str = "5"; break;
-			case 4 : str = "6"; break;
-			case 5 : str = "7"; break;
-			case 6 : str = "8"; break;
-			case 7 : str = "9"; break;
-			case 8 : str = "T"; break;
-			case 9 : str = "J"; break;
-			case 10 : str = "Q"; break;
-			case 11 : str = "K"; break;
-			case 12 : str = "A";
-		}
-		int findSuit = number / 13;
-		switch(findSuit)
-		{
-			case 0 : str += "s"; break;
-			case 1 : str += "h"; break;
-			case 2 : str += "c"; break;
-			default : str += "d";
-		}		
-		
-		return str;
+		return string;
+	}
+	
+	
+	private static Card[] createCards()
+	{
+		Card[] cards = new Card[52];
+		for(int i = 0; i < cards.length; i++)
+			cards[i] = new Card(i);
+		return cards;
 	}
 }
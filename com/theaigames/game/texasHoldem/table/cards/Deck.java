@@ -17,17 +17,21 @@
 
 package com.theaigames.game.texasHoldem.table.cards;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Random;
 
 /**
  * Class representing a single deck of cards, which is shuffled in random order.
- * Cards can be drawn from the deck.
+ * Cards can be drawn from the deck. The deck is kept as an array of card numbers with the cards that are still in the
+ * deck at the front. Only the positions that are actually drawn are shuffled: each draw swaps a random remaining card
+ * to the end of the remaining part, which gives the same random order as shuffling the whole deck up front.
  */
 public class Deck
 {
-	private ArrayList<Integer> cardOrder;
-	private ArrayList<Integer> cardOrderSavePoint;
+	private static final int DECK_SIZE = 52;
+	
+	private int[] cards;		// card numbers, the first 'remaining' of them are still in the deck
+	private int remaining;		// number of cards that are still in the deck
+	private Random random;
 	
 	/**
 	 * Creates a new deck of 52 cards, represented by integers 0 to 51, which are
@@ -35,43 +39,32 @@ public class Deck
 	 */
 	public Deck()
 	{
-		cardOrder = new ArrayList<Integer>();
-		for(int i = 0; i < 52; i++)
-			cardOrder.add(i);
-		
-		Collections.shuffle(cardOrder);
+		cards = new int[DECK_SIZE];
+		for(int i = 0; i < DECK_SIZE; i++)
+			cards[i] = i;
+		random = new Random();
+		resetDeck();
 	}
 	
 	
 	/**
-	 * Refreshes the deck such that it is a shuffled deck of 52 cards again.
+	 * Refreshes the deck such that it is a shuffled deck of 52 cards again. The drawn cards are still in the array, so
+	 * this only resets the number of remaining cards.
 	 */
 	public void resetDeck()
 	{
-		cardOrder = new ArrayList<Integer>();
-		for(int i = 0; i < 52; i++)
-			cardOrder.add(i);
-		
-		Collections.shuffle(cardOrder);
-	}
-	
-	
-	/**
-	 * Set a save point for the deck status, can be used for trying multiple random draws from a non-complete deck.
-	 */
-	public void setSavePoint()
-	{
-		cardOrderSavePoint = (ArrayList<Integer>) cardOrder.clone();
+		remaining = DECK_SIZE;
 	}
 	
 	
 	/**
-	 * Set the deck back to the status of the last restore point, reshuffling the remaining cards.
+	 * Returns the numbers of the cards that are still in the deck.
 	 */
-	public void restoreToSavePoint()
+	public int[] getRemainingCards()
 	{
-		cardOrder = (ArrayList<Integer>) cardOrderSavePoint.clone();
-		Collections.shuffle(cardOrder);
+		int[] remainingCards = new int[remaining];
+		System.arraycopy(cards, 0, remainingCards, 0, remaining);
+		return remainingCards;
 	}
 	
 	
@@ -80,14 +73,18 @@ public class Deck
 	 */
 	public Card nextCard()
 	{
-		if(cardOrder.size() <= 0)
+		if(remaining <= 0)
 		{
 			System.err.println("The deck is empty");
 			return null;
 		}
-			
-		int nextCardNumber = cardOrder.remove(cardOrder.size() - 1);
-		Card card = new Card(nextCardNumber);
-		return card;
+		
+		// swap a random remaining card to the end of the remaining part and draw it
+		int index = random.nextInt(remaining);
+		int nextCardNumber = cards[index];
+		remaining--;
+		cards[index] = cards[remaining];
+		cards[remaining] = nextCardNumber;
+		return Card.of(nextCardNumber);
 	}
 }
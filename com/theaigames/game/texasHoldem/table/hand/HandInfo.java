@@ -20,6 +20,7 @@ package com.theaigames.game.texasHoldem.table.hand;
 import java.util.ArrayList;
 
 import com.theaigames.game.texasHoldem.Player;
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
 
 public class HandInfo
 {
@@ -71,35 +72,50 @@ public class HandInfo
 	 */
 	public String toString()
 	{
-		String str = "";
-		
+		return appendTo(new ProtocolWriter()).toString().trim();
+	}
+	
+	/**
+	 * Returns whether this information is the same for every bot, so it only has to be built once for all of them.
+	 */
+	public boolean isShared()
+	{
+		return !infoType.equals(HandInfoType.HAND_CARDS);
+	}
+	
+	/**
+	 * Writes the same information as toString() as lines for the bots, one line per fact.
+	 * @param writer : the writer to add the lines to
+	 * @return : the given writer
+	 */
+	public ProtocolWriter appendTo(ProtocolWriter writer)
+	{
 		if(infoType.equals(HandInfoType.HAND_CARDS)) {
-			str += String.format("%s hand %s\n", botCodeNames[mySeat], myHand.toString());
+			writer.bot(botCodeNames[mySeat], "hand", myHand.toString());
 		}
 		
 		else if(infoType.equals(HandInfoType.HAND_START))
 		{
-			str += String.format("Match round %d\n", round);
+			writer.match("round", round);
 			
 			// only give the blind sizes at the start of each hand for tournaments
 			if(isTournament)	
 			{
 				//not needed in headsup
-				// str += String.format("Match totalPlayersLeft %d\n", playersLeft);
-				str += String.format("Match smallBlind %d\n", sizeSB);
-				str += String.format("Match bigBlind %d\n", sizeBB);
+				// writer.match("totalPlayersLeft", playersLeft);
+				writer.match("smallBlind", sizeSB);
+				writer.match("bigBlind", sizeBB);
 			}
-			str += String.format("Match onButton %s\n", botCodeNames[buttonSeat]);
+			writer.match("onButton", botCodeNames[buttonSeat]);
 			for(int i = 0; i < bots.size(); i++)
 				if(botStacks[i] > 0)
-					str += String.format("%s stack %d\n", botCodeNames[i], botStacks[i]);
+					writer.bot(botCodeNames[i], "stack", botStacks[i]);
 		}
 		
 		else if( infoType.equals(HandInfoType.NEW_BETROUND) ) {
-			str += String.format("Match table %s\n", table);
+			writer.match("table", table);
 		}
 		
-		str = str.trim();
-		return str;
+		return writer;
 	}
 }
@@ -20,6 +20,7 @@ package com.theaigames.game.texasHoldem.table.hand;
 import java.util.ArrayList;
 
 import com.theaigames.game.texasHoldem.Player;
+import com.theaigames.game.texasHoldem.protocol.ProtocolWriter;
 
 public class HandResultInfo
 {
@@ -56,15 +57,23 @@ public class HandResultInfo
 	 */
 	public String toString()
 	{
-		String str = "";
+		return appendTo(new ProtocolWriter()).toString().trim();
+	}
+	
+	
+	/**
+	 * Writes the same information as toString() as lines for the bots, one line per hand and per winner.
+	 * @param writer : the writer to add the lines to
+	 * @return : the given writer
+	 */
+	public ProtocolWriter appendTo(ProtocolWriter writer)
+	{
 		for(int i = 0; i < bots.size(); i++)
 			if(hands[i] != null)
-				str += String.format("%s hand %s\n", botCodeNames[i], hands[i].toString());
+				writer.bot(botCodeNames[i], "hand", hands[i].toString());
 		for(int i = 0; i < bots.size(); i++)
 			if(potParts[i] > 0)
-				str += String.format("%s wins %d\n", botCodeNames[i], potParts[i]);
-				
-		str = str.trim();
-		return str;
+				writer.bot(botCodeNames[i], "wins", potParts[i]);
+		return writer;
 	}
 }